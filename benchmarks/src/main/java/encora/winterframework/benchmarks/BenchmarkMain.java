@@ -0,0 +1,22 @@
+package encora.winterframework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON into 'jmh-result.json' unless another format is requested
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(Arrays.asList("-rf", "json"));
+            if (!arguments.contains("-rff")) {
+                arguments.addAll(Arrays.asList("-rff", "jmh-result.json"));
+            }
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,73 @@
+package encora.winterframework.benchmarks.dispatch;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encora.winterframework.benchmarks.dispatch.app.BenchmarkController;
+import encora.winterframework.context.ApplicationContext;
+import encora.winterframework.server.handler.RESTControllerHandler;
+
+/**
+ * Cost of dispatching a request through the {@link RESTControllerHandler}, from the route lookup to the serialized
+ * response, using in-memory exchanges
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    private RESTControllerHandler handler;
+
+    private FakeHttpExchange small;
+
+    private FakeHttpExchange large;
+
+    private FakeHttpExchange missing;
+
+    @Setup
+    public void setUp() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        ApplicationContext.init(BenchmarkController.class.getPackageName());
+        handler = ApplicationContext.getBean(RESTControllerHandler.class);
+        small = new FakeHttpExchange("GET", "/bench/hello");
+        large = new FakeHttpExchange("GET", "/bench/greetings/42?verbose=false");
+        missing = new FakeHttpExchange("GET", "/bench/missing");
+    }
+
+    @Benchmark
+    public int smallResponse() throws IOException {
+        return dispatch(small);
+    }
+
+    @Benchmark
+    public int largeResponse() throws IOException {
+        return dispatch(large);
+    }
+
+    @Benchmark
+    public int notFound() throws IOException {
+        return dispatch(missing);
+    }
+
+    private int dispatch(FakeHttpExchange exchange) throws IOException {
+        exchange.reset();
+        handler.handle(exchange);
+        return exchange.getResponseSize();
+    }
+}
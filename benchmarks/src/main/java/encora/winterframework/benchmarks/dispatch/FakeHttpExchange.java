@@ -0,0 +1,133 @@
+package encora.winterframework.benchmarks.dispatch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * In-memory exchange, so the dispatch can be measured without any socket involved
+ */
+public class FakeHttpExchange extends HttpExchange {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 9000);
+
+    private final String method;
+
+    private final URI uri;
+
+    private final Headers requestHeaders = new Headers();
+
+    private final Headers responseHeaders = new Headers();
+
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream(64 * 1024);
+
+    private int responseCode = -1;
+
+    public FakeHttpExchange(String method, String uri) {
+        this.method = method;
+        this.uri = URI.create(uri);
+    }
+
+    /**
+     * Prepare the exchange to be dispatched again
+     */
+    public void reset() {
+        responseHeaders.clear();
+        responseBody.reset();
+        responseCode = -1;
+    }
+
+    public int getResponseSize() {
+        return responseBody.size();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        responseCode = rCode;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+}
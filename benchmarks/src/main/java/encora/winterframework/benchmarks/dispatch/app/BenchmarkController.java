@@ -0,0 +1,42 @@
+package encora.winterframework.benchmarks.dispatch.app;
+
+import encora.winterframework.annotation.RESTController;
+import encora.winterframework.annotation.RequestMapping;
+
+@RESTController("bench")
+public class BenchmarkController {
+
+    private final Greeting greeting = new Greeting("Hello", 1);
+
+    private final Greeting[] greetings = new Greeting[200];
+
+    public BenchmarkController() {
+        for (int i = 0; i < greetings.length; i++) {
+            greetings[i] = new Greeting("Hello number " + i, i);
+        }
+    }
+
+    @RequestMapping(method = "GET", path = "/hello")
+    public Greeting hello() {
+        return greeting;
+    }
+
+    @RequestMapping(method = "GET", path = "/greetings/{id}")
+    public Greeting[] greetings() {
+        return greetings;
+    }
+
+    public static class Greeting {
+
+        private String message;
+
+        private int id;
+
+        public Greeting() {}
+
+        public Greeting(String message, int id) {
+            this.message = message;
+            this.id = id;
+        }
+    }
+}
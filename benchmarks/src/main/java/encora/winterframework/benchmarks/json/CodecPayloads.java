@@ -0,0 +1,121 @@
+package encora.winterframework.benchmarks.json;
+
+import encora.winterframework.annotation.JsonCodec;
+
+/**
+ * The same payloads as {@link Payloads}, serialized with the codecs generated at compile time
+ */
+public final class CodecPayloads {
+
+    private CodecPayloads() {}
+
+    public static Object create(Payloads.Shape shape) {
+        switch (shape) {
+            case SMALL:
+                return new Small(42, "Winter", true);
+            case DEEP:
+                return new Deep(8);
+            case WIDE:
+                return new Wide();
+            case ARRAYS:
+                return new Arrays(1000);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    @JsonCodec
+    public static class Small {
+
+        private int id;
+
+        private String name;
+
+        private boolean active;
+
+        public Small() {}
+
+        public Small(int id, String name, boolean active) {
+            this.id = id;
+            this.name = name;
+            this.active = active;
+        }
+    }
+
+    @JsonCodec
+    public static class Deep {
+
+        private long id;
+
+        private String label;
+
+        private Small leaf;
+
+        private Deep child;
+
+        public Deep() {}
+
+        public Deep(int depth) {
+            this.id = depth;
+            this.label = "level " + depth;
+            this.leaf = new Small(depth, "leaf " + depth, depth % 2 == 0);
+            // Leave room for the leaves under the nesting limit of the serializer
+            this.child = depth > 1 ? new Deep(depth - 1) : null;
+        }
+    }
+
+    @JsonCodec
+    public static class Wide {
+
+        private int i1 = 1, i2 = 2, i3 = 3, i4 = 4, i5 = 5, i6 = 6, i7 = 7, i8 = 8;
+
+        private long l1 = 100_000_000_000L, l2 = -200_000_000_000L, l3 = 3L, l4 = 4L;
+
+        private double d1 = 1.5, d2 = -2.25, d3 = 3.125, d4 = 1e-9;
+
+        private boolean b1 = true, b2 = false;
+
+        private char c1 = 'w';
+
+        private String s1 = "first", s2 = "second", s3 = "third with \"quotes\"", s4 = "cuarto con ñ", s5 = null;
+
+        private Integer boxed1 = 10, boxed2 = null;
+
+        private Small small1 = new Small(1, "one", true), small2 = new Small(2, "two", false);
+
+        public Wide() {}
+    }
+
+    @JsonCodec
+    public static class Arrays {
+
+        private int[] ints;
+
+        private double[] doubles;
+
+        private String[] strings;
+
+        private Small[] smalls;
+
+        public Arrays() {}
+
+        public Arrays(int size) {
+            ints = new int[size];
+            doubles = new double[size / 5];
+            strings = new String[size / 10];
+            smalls = new Small[size / 20];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = i * 31;
+            }
+            for (int i = 0; i < doubles.length; i++) {
+                doubles[i] = i / 7.0;
+            }
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = "value-" + i;
+            }
+            for (int i = 0; i < smalls.length; i++) {
+                smalls[i] = new Small(i, "small-" + i, i % 3 == 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package encora.winterframework.benchmarks.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encora.winterframework.util.JSONParser;
+import encora.winterframework.util.cbor.CborDeserializer;
+import encora.winterframework.util.cbor.CborReader;
+import encora.winterframework.util.cbor.CborSerializer;
+import encora.winterframework.util.cbor.CborWriter;
+import encora.winterframework.util.json.JsonWriter;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JSONParserBenchmark {
+
+    @Param({ "SMALL", "DEEP", "WIDE", "ARRAYS" })
+    private Payloads.Shape shape;
+
+    // Whether the payload classes have codecs generated by the annotation processor
+    @Param({ "false", "true" })
+    private boolean generated;
+
+    private Object payload;
+
+    private Class<?> payloadType;
+
+    private String json;
+
+    private byte[] jsonBytes;
+
+    private JsonWriter writer;
+
+    private byte[] cbor;
+
+    private CborWriter cborWriter;
+
+    @Setup
+    public void setUp() throws IllegalAccessException {
+        payload = generated ? CodecPayloads.create(shape) : Payloads.create(shape);
+        payloadType = payload.getClass();
+        json = JSONParser.toJSON(payload);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        writer = new JsonWriter(jsonBytes.length);
+        cborWriter = new CborWriter(jsonBytes.length);
+        new CborSerializer(cborWriter, 10).write(payload);
+        cbor = cborWriter.toByteArray();
+        cborWriter.reset();
+    }
+
+    @Benchmark
+    public String toJSONString() throws IllegalAccessException {
+        return JSONParser.toJSON(payload);
+    }
+
+    @Benchmark
+    public int toJSONWriter() throws IllegalAccessException {
+        JSONParser.toJSON(payload, writer);
+        int size = writer.size();
+        writer.reset();
+        return size;
+    }
+
+    @Benchmark
+    public Object toObjectString() throws ReflectiveOperationException {
+        return JSONParser.toObject(json, payloadType);
+    }
+
+    @Benchmark
+    public Object toObjectBytes() throws ReflectiveOperationException {
+        return JSONParser.toObject(jsonBytes, payloadType);
+    }
+
+    @Benchmark
+    public int toCborWriter() throws IllegalAccessException {
+        new CborSerializer(cborWriter, 10).write(payload);
+        int size = cborWriter.size();
+        cborWriter.reset();
+        return size;
+    }
+
+    @Benchmark
+    public Object toObjectCbor() throws ReflectiveOperationException {
+        return new CborDeserializer(new CborReader(cbor)).read(payloadType);
+    }
+}
@@ -0,0 +1,90 @@
+package encora.winterframework.benchmarks.routing;
+
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encora.winterframework.context.route.RouteMatch;
+import encora.winterframework.context.route.RouteTrie;
+
+/**
+ * Lookup cost of the route trie as the number of routes grows
+ * Half of the routes are static and the other half have path variables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouteLookupBenchmark {
+
+    private static final int PATHS = 1024;
+
+    @Param({ "10", "100", "1000", "10000" })
+    private int routeCount;
+
+    private RouteTrie trie;
+
+    private String[] staticPaths;
+
+    private String[] variablePaths;
+
+    private int next;
+
+    public static class Controller {
+
+        public void handle() {}
+    }
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Method handler = Controller.class.getMethod("handle");
+        Controller controller = new Controller();
+        trie = new RouteTrie();
+        for (int i = 0; i < routeCount; i++) {
+            if (i % 2 == 0) {
+                trie.add("GET", "/api/resource" + i + "/list", handler, controller);
+            } else {
+                trie.add("GET", "/api/resource" + i + "/{id}/items/{itemId}", handler, controller);
+            }
+        }
+        trie.compile();
+
+        Random random = new Random(42);
+        staticPaths = new String[PATHS];
+        variablePaths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            int route = random.nextInt(routeCount / 2) * 2;
+            staticPaths[i] = "/api/resource" + route + "/list";
+            variablePaths[i] = "/api/resource" + (route + 1) + "/" + random.nextInt(10_000) + "/items/" + random.nextInt(100);
+        }
+    }
+
+    @Benchmark
+    public RouteMatch staticRoute() {
+        return trie.find("GET", staticPaths[next++ & (PATHS - 1)]);
+    }
+
+    @Benchmark
+    public RouteMatch variableRoute() {
+        return trie.find("GET", variablePaths[next++ & (PATHS - 1)]);
+    }
+
+    @Benchmark
+    public RouteMatch missingRoute() {
+        return trie.find("GET", "/api/missing/" + (next++ & (PATHS - 1)));
+    }
+}
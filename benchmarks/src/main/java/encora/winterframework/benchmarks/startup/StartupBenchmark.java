@@ -0,0 +1,154 @@
+package encora.winterframework.benchmarks.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encora.winterframework.context.ApplicationContext;
+
+/**
+ * Cold start of {@link ApplicationContext#init(String...)} for generated applications of different sizes
+ * <p>
+ * The application is generated and compiled once per trial, with or without the component index. Every invocation
+ * loads the framework and the application in a new class loader, so nothing is reused between invocations.
+ * Needs a JDK, since the application is compiled while setting up the benchmark.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final String PACKAGE = "winter.generated";
+
+    @Param({ "10", "100", "1000" })
+    private int components;
+
+    @Param({ "true", "false" })
+    private boolean indexed;
+
+    private Path appDirectory;
+
+    private URL[] classPath;
+
+    @Setup(Level.Trial)
+    public void generateApplication() throws IOException {
+        Logger root = Logger.getLogger("");
+        root.setLevel(java.util.logging.Level.WARNING);
+        for (Handler handler : root.getHandlers()) {
+            handler.setLevel(java.util.logging.Level.WARNING);
+        }
+
+        appDirectory = Files.createTempDirectory("winter-startup");
+        Path sources = Files.createDirectories(appDirectory.resolve("src").resolve(PACKAGE.replace('.', '/')));
+        Path classes = Files.createDirectories(appDirectory.resolve("classes"));
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < components; i++) {
+            files.add(writeSource(sources, "Component" + i, componentSource(i)));
+            // Classes that are not components, the scanner has to skip them
+            files.add(writeSource(sources, "Model" + i, "package " + PACKAGE + ";\npublic class Model" + i + " { int value; }\n"));
+        }
+
+        String frameworkLocation = new File(codeSource(ApplicationContext.class)).getPath();
+        List<String> arguments = new ArrayList<>(List.of("-d", classes.toString(), "-cp", frameworkLocation, "-nowarn"));
+        if (!indexed) {
+            arguments.add("-proc:none");
+        }
+        arguments.addAll(files);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The startup benchmark needs a JDK to compile the generated application");
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Cannot compile the generated application");
+        }
+        classPath = new URL[] { classes.toUri().toURL(), new File(frameworkLocation).toURI().toURL() };
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteApplication() throws IOException {
+        try (Stream<Path> paths = Files.walk(appDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object init() throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader())) {
+            thread.setContextClassLoader(loader);
+            Class<?> context = loader.loadClass(ApplicationContext.class.getName());
+            Method init = context.getMethod("init", String[].class);
+            init.invoke(null, (Object) new String[] { PACKAGE });
+            return context;
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static String componentSource(int i) {
+        StringBuilder source = new StringBuilder("package " + PACKAGE + ";\n")
+            .append("import encora.winterframework.annotation.*;\n");
+        // One controller every ten components, the rest are services depending on the next one
+        if (i % 10 == 0) {
+            source.append("@RESTController(\"c").append(i).append("\")\n");
+        } else {
+            source.append("@Service\n");
+        }
+        source.append("public class Component").append(i).append(" {\n")
+            .append("    @Autowired\n")
+            .append("    private Component").append((i + 1) % 10 == 0 ? i - 9 : i + 1).append(" next;\n");
+        if (i % 10 == 0) {
+            source.append("    @RequestMapping(method = \"GET\", path = \"/items/{id}\")\n")
+                .append("    public Model").append(i).append(" item() { return new Model").append(i).append("(); }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static String writeSource(Path directory, String className, String source) throws IOException {
+        Path file = directory.resolve(className + ".java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private static URI codeSource(Class<?> clazz) {
+        try {
+            return clazz.getProtectionDomain().getCodeSource().getLocation().toURI();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot find the location of " + clazz, e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keeps the serialized responses of a GET handler, so it's called once per path until the response expires
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * Seconds a response is served from the cache
+     */
+    int ttl() default 60;
+
+    /**
+     * Maximum size in bytes of the responses kept for the route, the least recently used ones are evicted first
+     */
+    int maxBytes() default 8 * 1024 * 1024;
+}
@@ -0,0 +1,16 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a JSON codec for the class while compiling it, so it's serialized without reflection
+ * The codec reads and writes the same fields as the reflective one. Classes compiled without the annotation
+ * processor keep using reflection.
+ */
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonCodec {
+}
@@ -0,0 +1,20 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Creates the bean the first time it's needed instead of at startup, the first request of a lazy controller creates it
+ * Beans needed by eager ones are created at startup anyway.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+
+    /**
+     * Whether the bean is lazy, false creates it at startup even if the application is lazy
+     */
+    boolean value() default true;
+}
@@ -5,9 +5,16 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Binds a handler parameter to a variable of the path template, i.e. {@code {id}} in {@code /users/{id}}
+ */
 @Target(ElementType.PARAMETER)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface PathParam {
 
+    /**
+     * Name of the variable, empty uses the name of the Java parameter, or the variable at the same position among
+     * the path parameters when the names were not compiled in
+     */
     String value() default "";
 }
@@ -0,0 +1,19 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a handler parameter to a query parameter, missing ones are null, or a 400 for primitives
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryParam {
+
+    /**
+     * Name of the query parameter, empty uses the name of the Java parameter
+     */
+    String value() default "";
+}
@@ -0,0 +1,29 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the requests every client can make to a handler, the ones over the limit get a 429
+ */
+@Target({ ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * Requests per second allowed to every client
+     */
+    double rate();
+
+    /**
+     * Requests a client can make at once after being quiet for a while, zero uses the rate
+     */
+    int burst() default 0;
+
+    /**
+     * Header telling the clients apart, i.e. 'X-Api-Key', empty uses the remote address
+     */
+    String header() default "";
+}
@@ -0,0 +1,19 @@
+package encora.winterframework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a handler parameter to a request header, missing ones are null, or a 400 for primitives
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequestHeader {
+
+    /**
+     * Name of the header, case insensitive
+     */
+    String value();
+}
@@ -12,4 +12,16 @@ public @interface RequestMapping {
     String method();
 
     String path() default "";
+
+    /**
+     * Milliseconds to wait for the {@link java.util.concurrent.CompletionStage} returned by the handler before
+     * answering with a 504, zero uses the server 'asyncTimeout' and a negative value waits forever
+     */
+    long timeout() default 0;
+
+    /**
+     * Requests handled at the same time before answering the rest with a 503, zero uses the server
+     * 'maxConcurrency' and a negative value removes the limit
+     */
+    int maxConcurrency() default 0;
 }
@@ -5,9 +5,106 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import encora.winterframework.server.EngineMode;
+import encora.winterframework.server.ExecutorMode;
+
 @Target({ ElementType.TYPE })
 @Retention(RetentionPolicy.RUNTIME)
 public @interface WinterBootApplication {
 
     String[] packages() default {};
+
+    int port() default 9000;
+
+    /**
+     * Maximum number of pending connections, zero or negative uses the system default
+     */
+    int backlog() default 1024;
+
+    EngineMode engine() default EngineMode.JDK;
+
+    ExecutorMode executor() default ExecutorMode.FIXED;
+
+    /**
+     * Number of worker threads, zero or negative sizes the pool based on the available processors
+     */
+    int threads() default 0;
+
+    /**
+     * Maximum number of requests waiting for a worker, the rest are answered with a 503. The
+     * {@link ExecutorMode#WORK_STEALING} and {@link ExecutorMode#VIRTUAL} modes admit as many requests as the threads
+     * and the queue together
+     */
+    int queueCapacity() default 1024;
+
+    /**
+     * Smallest response body compressed for the clients accepting it, in bytes
+     */
+    int compressionMinSize() default 1024;
+
+    /**
+     * Compression level of the responses from 1 to 9, zero disables the compression
+     */
+    int compressionLevel() default 6;
+
+    /**
+     * Milliseconds to wait for the asynchronous handlers without a timeout of their own, zero or negative waits forever
+     */
+    long asyncTimeout() default 30_000;
+
+    /**
+     * Requests handled at the same time by every route without a limit of its own, zero or negative is unlimited
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * Whether the concurrency limits follow the latency of the routes, lowering them when requests start to queue
+     */
+    boolean adaptiveConcurrency() default false;
+
+    /**
+     * Requests per second allowed to every client on every route without a {@link RateLimit}, zero or negative is
+     * unlimited
+     */
+    int rateLimit() default 0;
+
+    /**
+     * Requests a client can make at once, zero uses the rate limit
+     */
+    int rateLimitBurst() default 0;
+
+    /**
+     * Header telling the clients apart, empty uses the remote address
+     */
+    String rateLimitHeader() default "";
+
+    /**
+     * Elements of a streamed response sent together, zero sends them whenever the buffer gets full
+     */
+    int streamFlushSize() default 0;
+
+    /**
+     * Milliseconds a streamed element may wait in the buffer, zero or negative waits until it gets full
+     */
+    long streamFlushInterval() default 100;
+
+    /**
+     * Most calls accepted by a single batch request, zero or negative disables the batch endpoint
+     */
+    int batchMaxRequests() default 50;
+
+    /**
+     * Calls of a batch request running at the same time
+     */
+    int batchConcurrency() default 8;
+
+    /**
+     * Beans created at the same time during startup, zero uses the available processors and one creates them in order
+     */
+    int initThreads() default 0;
+
+    /**
+     * Whether the beans are created the first time they are needed instead of at startup, see {@link Lazy}
+     */
+    boolean lazyInit() default false;
 }
@@ -1,130 +1,222 @@
 package encora.winterframework.context;
 
 import java.lang.invoke.MethodHandles;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
 
-import encora.winterframework.annotation.Autowired;
+import encora.winterframework.annotation.Cacheable;
 import encora.winterframework.annotation.Component;
-import encora.winterframework.annotation.RESTController;
-import encora.winterframework.annotation.RequestMapping;
-import encora.winterframework.annotation.Service;
 import encora.winterframework.context.loader.AnnotationScanner;
+import encora.winterframework.context.loader.ComponentIndex;
+import encora.winterframework.context.route.RouteInvoker;
+import encora.winterframework.context.route.RouteMatch;
+import encora.winterframework.context.route.RouteTrie;
 
 public final class ApplicationContext {
 
     private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
 
-    private static volatile ApplicationContext instance;
+    private static final ApplicationContext instance = new ApplicationContext();
 
-    private static final Map<Class<?>, Object> componentInstances = new HashMap<>();
+    private static final BeanRegistry componentInstances = new BeanRegistry();
 
-    private static Map<Object, List<Object>> instanceDependencies;
+    private static RouteTrie requestHandlers;
 
-    private static Map<String, Method> requestHandlers;
+    private static StartupReport startupReport;
 
     private ApplicationContext() {}
 
     public static ApplicationContext getInstance() {
-        // Does not support multithreading (efficiently)
-        if (Objects.isNull(instance)) {
-            synchronized (ApplicationContext.class) {
-                if (Objects.isNull(instance)) {
-                    instance = new ApplicationContext();
-                }
-            }
-        }
         return instance;
     }
 
-    // TODO: Check how to overload the init for parameters
     public static void init(String... packages) {
+        init(0, false, packages);
+    }
+
+    /**
+     * @param threads  Beans created at the same time, zero uses the available processors and one creates them in order
+     * @param lazy     Whether the beans without a @Lazy annotation are created the first time they are needed
+     * @param packages The packages of the components
+     */
+    public static void init(int threads, boolean lazy, String... packages) {
+        long start = System.nanoTime();
         log.info("Initializing everything ... :turtle: ");
+        Map<StartupReport.Phase, Long> phases = new EnumMap<>(StartupReport.Phase.class);
+        ClassLoader classLoader = getClassLoader();
+        List<ComponentIndex> indexes = new ArrayList<>();
+        List<String> packagesToScan = new ArrayList<>();
         for (String pkg : packages) {
-            log.info("Scanning for package: " + pkg);
-            componentInstances.putAll(initializeComponentInstances(pkg));
+            ComponentIndex index = ComponentIndex.load(classLoader, pkg);
+            if (Objects.isNull(index) || index.isEmpty()) {
+                packagesToScan.add(pkg);
+            } else {
+                log.info("Using the generated component index for package: " + pkg);
+                indexes.add(index);
+            }
         }
+        if (!packagesToScan.isEmpty()) {
+            log.info("Scanning for packages: " + packagesToScan);
+            indexes.add(ComponentIndex.fromClasses(AnnotationScanner.scanAnnotatedClasses(Component.class, packagesToScan)));
+        }
+        long phaseStart = record(phases, StartupReport.Phase.SCANNING, start);
+
+        Map<String, Class<?>> classes = new HashMap<>();
+        Map<Class<?>, List<String>> components = loadComponentClasses(indexes, classLoader, classes);
+        phaseStart = record(phases, StartupReport.Phase.CLASS_LOADING, phaseStart);
+
+        // Dependencies that are not beans are created on demand, as getBean does
+        BeanGraph graph = new BeanGraph(components, lazy, componentInstances::get);
+        phaseStart = record(phases, StartupReport.Phase.DEPENDENCY_GRAPH, phaseStart);
+
+        int beanThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        Set<Class<?>> lazyClasses = initializeComponentInstances(graph, beanThreads);
+        componentInstances.freeze();
+        phaseStart = record(phases, StartupReport.Phase.BEAN_CREATION, phaseStart);
+
+        requestHandlers = initializeControllerMappings(indexes, classes, lazyClasses);
+        record(phases, StartupReport.Phase.ROUTE_MAPPING, phaseStart);
+        startupReport = new StartupReport(phases, System.nanoTime() - start, beanThreads, graph.getNodes());
+        log.info(startupReport.toString());
+        log.info(String.format("I did my best while initializing, it took %d ms", (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private static long record(Map<StartupReport.Phase, Long> phases, StartupReport.Phase phase, long start) {
+        long end = System.nanoTime();
+        phases.put(phase, end - start);
+        return end;
+    }
 
-        requestHandlers = initializeControllerMappings();
-        initializedAutowiredDependencies();
-        log.info("I did my best while initializing");
+    /**
+     * @return Where the initialization spent its time, null until the context is initialized
+     */
+    public static StartupReport getStartupReport() {
+        return startupReport;
     }
 
+    /**
+     * @param theClass The class of the bean, or any of its superclasses or interfaces
+     * @return The bean of the class, an instance of it is created if it's not a component
+     */
     @SuppressWarnings("unchecked")
     public static <T> T getBean(Class<T> theClass) {
-        log.info("Getting bean for class: " + theClass);
-        Object o = componentInstances.get(theClass);
-        if (Objects.isNull(o)) {
-            try {
-                o = theClass.getDeclaredConstructor().newInstance();
-                componentInstances.put(theClass, o);
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                throw new IllegalArgumentException("Cannot create instance of " + Component.class + " : " + theClass.getName());
-            }
-        }
-        return (T) o;
+        return (T) componentInstances.get(theClass);
     }
 
+    /**
+     * @param httpMethod The requested HTTP method
+     * @param path       The requested path
+     * @return The route handling the request and its path variables, or null if there's none
+     */
+    public static RouteMatch getRequestHandler(String httpMethod, String path) {
+        return requestHandlers.find(httpMethod, path);
+    }
+
+    /**
+     * @param path The requested path
+     * @return The HTTP methods having a handler for the path
+     */
+    public static Set<String> getAllowedMethods(String path) {
+        return requestHandlers.findAllowedMethods(path);
+    }
+
+    /**
+     * @param requestPath The HTTP method followed by the path, i.e. 'GET/users/all'
+     * @return The method handling the request, or null if there's none
+     */
     public static Method getRequestHandlerMethod(String requestPath) {
-        return requestHandlers.get(requestPath);
+        int separator = requestPath.indexOf('/');
+        if (separator < 0) {
+            return null;
+        }
+        RouteMatch match = getRequestHandler(requestPath.substring(0, separator), requestPath.substring(separator));
+        return Objects.isNull(match) ? null : match.getRoute().getHandlerMethod();
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return Objects.isNull(classLoader) ? ApplicationContext.class.getClassLoader() : classLoader;
     }
 
-    private static Map<Class<?>, Object> initializeComponentInstances(String rootPackage) {
-        List<Class<?>> classes = AnnotationScanner.scanAnnotatedClasses(rootPackage, Component.class);
-        classes.addAll(AnnotationScanner.scanAnnotatedClasses(rootPackage, RESTController.class));
-        classes.addAll(AnnotationScanner.scanAnnotatedClasses(rootPackage, Service.class));
-        Map<Class<?>, Object> instances = new HashMap<>(classes.size());
-
-        for (Class<?> clazz : classes) {
-            try {
-                log.info("Initializing class: " + clazz);
-                Constructor<?> constructor = clazz.getDeclaredConstructor();
-                Object inst = constructor.newInstance();
-                instances.put(clazz, inst);
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                throw new IllegalArgumentException("Cannot create instance of " + Component.class + " : " + clazz.getName());
+    /**
+     * The classes are not initialized yet, so the static initializers of the lazy beans run when they are created
+     *
+     * @return The autowired fields of every component class, in the order of the indexes
+     */
+    private static Map<Class<?>, List<String>> loadComponentClasses(List<ComponentIndex> indexes, ClassLoader classLoader,
+                                                                    Map<String, Class<?>> classes) {
+        Map<Class<?>, List<String>> components = new LinkedHashMap<>();
+        for (ComponentIndex index : indexes) {
+            for (ComponentIndex.ComponentEntry entry : index.getComponents()) {
+                try {
+                    Class<?> clazz = Class.forName(entry.getClassName(), false, classLoader);
+                    components.put(clazz, entry.getAutowiredFields());
+                    classes.put(entry.getClassName(), clazz);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("Cannot find " + Component.class + " : " + entry.getClassName());
+                }
             }
         }
-        return instances;
+        return components;
     }
 
-    private static void initializedAutowiredDependencies() {
-        for (Map.Entry<Class<?>, Object> bean : componentInstances.entrySet()) {
-            Class<?> beanClazz = bean.getKey();
-            for (Field field : beanClazz.getDeclaredFields()) {
-                if (field.isAnnotationPresent(Autowired.class)) {
-                    try {
-                        field.setAccessible(true);
-                        field.set(bean.getValue(), ApplicationContext.getBean(field.getType()));
-                    } catch (IllegalAccessException e) {
-                        // TODO: Maneja esto mejor
-                    }
-                }
+    /**
+     * Create the eager beans after the ones they depend on, the independent ones at the same time
+     *
+     * @return The classes of the lazy beans
+     */
+    private static Set<Class<?>> initializeComponentInstances(BeanGraph graph, int threads) {
+        graph.instantiate(threads);
+        Set<Class<?>> lazyClasses = new HashSet<>();
+        for (BeanGraph.BeanNode node : graph.getNodes()) {
+            if (node.isLazy()) {
+                lazyClasses.add(node.getType());
+                componentInstances.registerLazy(node.getType(), node::getInstance);
+            } else {
+                componentInstances.register(node.getType(), node.getInstance());
             }
         }
+        return lazyClasses;
     }
 
-    private static Map<String, Method> initializeControllerMappings() {
-        Map<String, Method> methodList = new HashMap<>();
-        for (Class<?> clazz : componentInstances.keySet()) {
-            if (clazz.isAnnotationPresent(RESTController.class)) {
-                RESTController kAnnotation = clazz.getAnnotation(RESTController.class);
-                for (Method method : clazz.getDeclaredMethods()) {
-                    if (method.isAnnotationPresent(RequestMapping.class)) {
-                        RequestMapping mAnnotation = method.getAnnotation(RequestMapping.class);
-                        String endpointUrl = mAnnotation.method() + "/" + kAnnotation.value() + mAnnotation.path();
-                        methodList.put(endpointUrl, method);
+    /**
+     * Routes of lazy controllers create them on their first request
+     */
+    private static RouteTrie initializeControllerMappings(List<ComponentIndex> indexes, Map<String, Class<?>> classes,
+                                                          Set<Class<?>> lazyClasses) {
+        RouteTrie routes = new RouteTrie();
+        for (ComponentIndex index : indexes) {
+            for (ComponentIndex.ComponentEntry entry : index.getComponents()) {
+                Class<?> clazz = classes.get(entry.getClassName());
+                for (ComponentIndex.RouteEntry route : entry.getRoutes()) {
+                    try {
+                        Method method = route.resolveMethod(clazz);
+                        if (method.isAnnotationPresent(Cacheable.class) && !"GET".equals(route.getHttpMethod())) {
+                            throw new IllegalStateException("Only GET handlers can be @Cacheable, not " + method);
+                        }
+                        log.info("Mapping " + route.getHttpMethod() + " " + route.getTemplate() + " to " + method);
+                        if (lazyClasses.contains(clazz)) {
+                            RouteInvoker invoker = RouteInvoker.ofLazy(method, () -> componentInstances.get(clazz));
+                            routes.add(route.getHttpMethod(), route.getTemplate(), method, invoker);
+                        } else {
+                            routes.add(route.getHttpMethod(), route.getTemplate(), method, componentInstances.get(clazz));
+                        }
+                    } catch (NoSuchMethodException e) {
+                        throw new IllegalArgumentException("Cannot find request handler " + e.getMessage());
                     }
                 }
             }
         }
-        return methodList;
+        routes.compile();
+        return routes;
     }
 }
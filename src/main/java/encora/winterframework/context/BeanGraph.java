@@ -0,0 +1,457 @@
+package encora.winterframework.context;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import encora.winterframework.annotation.Autowired;
+import encora.winterframework.annotation.Lazy;
+
+/**
+ * The beans of the application and the beans each of them needs, from its constructor and its @Autowired fields
+ * <p>
+ * The constructors are checked for cycles when the graph is built, and the eager beans are constructed in
+ * topological order: every bean is constructed once the beans its constructor needs are, so beans that don't depend
+ * on each other are constructed at the same time. The fields are injected once every eager bean is constructed, so
+ * beans can reach each other through their fields. Lazy beans are created with their lazy dependencies the first
+ * time they are requested, unless some eager bean needs them. Beans in a field cycle share a lock, so requesting
+ * them at the same time can't deadlock, while unrelated lazy beans are created at the same time.
+ */
+final class BeanGraph {
+
+    private final Map<Class<?>, BeanNode> nodes = new LinkedHashMap<>();
+
+    // Constructor dependencies first, every bean after the ones its constructor needs
+    private final List<BeanNode> order = new ArrayList<>();
+
+    /**
+     * @param components    The classes of the beans with their @Autowired fields, in registration order
+     * @param lazyByDefault Whether the beans without a @Lazy annotation are lazy
+     * @param nonBeans      Gives the instance of the dependencies that are not beans
+     * @throws IllegalArgumentException If some bean can't be created or its dependencies form a cycle
+     */
+    BeanGraph(Map<Class<?>, List<String>> components, boolean lazyByDefault, Function<Class<?>, Object> nonBeans) {
+        for (Map.Entry<Class<?>, List<String>> component : components.entrySet()) {
+            Lazy lazy = component.getKey().getAnnotation(Lazy.class);
+            boolean isLazy = Objects.isNull(lazy) ? lazyByDefault : lazy.value();
+            nodes.put(component.getKey(), new BeanNode(component.getKey(), component.getValue(), isLazy, nonBeans));
+        }
+        for (BeanNode node : nodes.values()) {
+            node.resolve(this);
+        }
+        sort();
+        shareLocks();
+        // Fields may form cycles, so the beans needed by the eager ones are followed until there are no more
+        List<BeanNode> pending = new ArrayList<>();
+        for (BeanNode node : nodes.values()) {
+            if (!node.lazy) {
+                pending.add(node);
+            }
+        }
+        while (!pending.isEmpty()) {
+            BeanNode node = pending.remove(pending.size() - 1);
+            for (BeanNode dependency : node.dependencies) {
+                if (dependency.lazy) {
+                    dependency.lazy = false;
+                    pending.add(dependency);
+                }
+            }
+            for (BeanNode dependency : node.fieldBeans) {
+                if (Objects.nonNull(dependency) && dependency.lazy) {
+                    dependency.lazy = false;
+                    pending.add(dependency);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The beans in topological order, every bean after the ones it needs
+     */
+    List<BeanNode> getNodes() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * Construct every eager bean, and then inject their fields
+     *
+     * @param threads Beans constructed at the same time, one constructs them in order in the calling thread
+     */
+    void instantiate(int threads) {
+        List<BeanNode> eager = new ArrayList<>();
+        for (BeanNode node : order) {
+            if (!node.lazy) {
+                eager.add(node);
+            }
+        }
+        if (threads <= 1 || eager.size() <= 1) {
+            for (BeanNode node : eager) {
+                node.construct();
+            }
+        } else {
+            instantiateInParallel(eager, threads);
+        }
+        for (BeanNode node : eager) {
+            node.inject();
+        }
+        for (BeanNode node : eager) {
+            node.publish();
+        }
+    }
+
+    private static void instantiateInParallel(List<BeanNode> eager, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Map<BeanNode, CompletableFuture<Void>> created = new HashMap<>();
+            for (BeanNode node : eager) {
+                Runnable create = node::construct;
+                CompletableFuture<Void> future;
+                if (node.dependencies.isEmpty()) {
+                    future = CompletableFuture.runAsync(create, pool);
+                } else {
+                    CompletableFuture<?>[] dependencies = new CompletableFuture<?>[node.dependencies.size()];
+                    int i = 0;
+                    for (BeanNode dependency : node.dependencies) {
+                        dependencies[i++] = created.get(dependency);
+                    }
+                    future = CompletableFuture.allOf(dependencies).thenRunAsync(create, pool);
+                }
+                created.put(node, future);
+            }
+            // The first failure in topological order is the cause of the ones depending on it
+            for (BeanNode node : eager) {
+                try {
+                    created.get(node).join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Depth first over the constructors, so a bean is added once all of its constructor dependencies are, and
+     * reaching a bean that is still being visited means there's a cycle
+     */
+    private void sort() {
+        Set<BeanNode> visited = new LinkedHashSet<>();
+        List<BeanNode> path = new ArrayList<>();
+        for (BeanNode node : nodes.values()) {
+            visit(node, visited, path);
+        }
+    }
+
+    private void visit(BeanNode node, Set<BeanNode> visited, List<BeanNode> path) {
+        if (visited.contains(node)) {
+            return;
+        }
+        int index = path.indexOf(node);
+        if (index >= 0) {
+            List<String> cycle = new ArrayList<>();
+            for (BeanNode bean : path.subList(index, path.size())) {
+                cycle.add(bean.type.getName());
+            }
+            cycle.add(node.type.getName());
+            throw new IllegalArgumentException("Constructor dependency cycle between the beans: " + String.join(" -> ", cycle)
+                + ", inject one of them into an @Autowired field instead");
+        }
+        path.add(node);
+        for (BeanNode dependency : node.dependencies) {
+            visit(dependency, visited, path);
+        }
+        path.remove(path.size() - 1);
+        visited.add(node);
+        order.add(node);
+    }
+
+    /**
+     * Give every group of beans reaching each other, the strongly connected components of the graph, a lock of its
+     * own. Beans in different groups never wait for each other in a cycle, so their locks can't deadlock.
+     */
+    private void shareLocks() {
+        Map<BeanNode, Integer> index = new HashMap<>();
+        Map<BeanNode, Integer> low = new HashMap<>();
+        // Beans visited whose group isn't complete yet, in the order they were visited
+        List<BeanNode> stack = new ArrayList<>();
+        Set<BeanNode> stacked = new HashSet<>();
+        for (BeanNode node : nodes.values()) {
+            if (!index.containsKey(node)) {
+                connect(node, index, low, stack, stacked);
+            }
+        }
+    }
+
+    private void connect(BeanNode node, Map<BeanNode, Integer> index, Map<BeanNode, Integer> low, List<BeanNode> stack,
+        Set<BeanNode> stacked) {
+        index.put(node, index.size());
+        low.put(node, index.get(node));
+        stack.add(node);
+        stacked.add(node);
+        List<BeanNode> next = new ArrayList<>(node.dependencies);
+        for (BeanNode dependency : node.fieldBeans) {
+            if (Objects.nonNull(dependency)) {
+                next.add(dependency);
+            }
+        }
+        for (BeanNode dependency : next) {
+            if (!index.containsKey(dependency)) {
+                connect(dependency, index, low, stack, stacked);
+                low.put(node, Math.min(low.get(node), low.get(dependency)));
+            } else if (stacked.contains(dependency)) {
+                low.put(node, Math.min(low.get(node), index.get(dependency)));
+            }
+        }
+        if (low.get(node).equals(index.get(node))) {
+            // The group is the node and every bean visited after it
+            Object lock = new Object();
+            BeanNode member;
+            do {
+                member = stack.remove(stack.size() - 1);
+                stacked.remove(member);
+                member.lock = lock;
+            } while (member != node);
+        }
+    }
+
+    /**
+     * @return The bean assignable to the type, or null if the type is not a bean
+     * @throws IllegalArgumentException If more than one bean is assignable to the type
+     */
+    private BeanNode find(Class<?> type, Object injectionPoint) {
+        BeanNode node = nodes.get(type);
+        if (Objects.nonNull(node)) {
+            return node;
+        }
+        List<String> candidates = new ArrayList<>();
+        for (BeanNode candidate : nodes.values()) {
+            if (type.isAssignableFrom(candidate.type)) {
+                node = candidate;
+                candidates.add(candidate.type.getName());
+            }
+        }
+        if (candidates.size() > 1) {
+            throw new IllegalArgumentException("More than one bean of " + type.getName() + " for " + injectionPoint + ": " + candidates);
+        }
+        return node;
+    }
+
+    /**
+     * A bean, the way it's created and the beans it needs
+     */
+    static final class BeanNode {
+
+        private final Class<?> type;
+
+        private final Constructor<?> constructor;
+
+        private final Field[] fields;
+
+        // The bean of every constructor parameter and field, null when it's not a bean
+        private final BeanNode[] parameterBeans;
+
+        private final BeanNode[] fieldBeans;
+
+        // The beans needed by the constructor
+        private final Set<BeanNode> dependencies = new LinkedHashSet<>();
+
+        private final Function<Class<?>, Object> nonBeans;
+
+        // Only changed while the graph is built
+        private boolean lazy;
+
+        // Guards the creation of the bean, shared with the beans of its field cycles
+        private Object lock;
+
+        // Written before the instance, so they are visible once it is
+        private long constructorNanos;
+
+        private long injectionNanos;
+
+        // The bean before its fields are injected, only reached by the beans created with it
+        private Object constructed;
+
+        private volatile Object instance;
+
+        private BeanNode(Class<?> type, List<String> autowiredFields, boolean lazy, Function<Class<?>, Object> nonBeans) {
+            this.type = type;
+            this.lazy = lazy;
+            this.nonBeans = nonBeans;
+            this.constructor = constructorOf(type);
+            this.fields = new Field[autowiredFields.size()];
+            for (int i = 0; i < fields.length; i++) {
+                try {
+                    fields[i] = type.getDeclaredField(autowiredFields.get(i));
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException("Cannot find autowired field '" + autowiredFields.get(i) + "' in " + type.getName());
+                }
+            }
+            this.parameterBeans = new BeanNode[constructor.getParameterCount()];
+            this.fieldBeans = new BeanNode[fields.length];
+        }
+
+        /**
+         * The constructor annotated with @Autowired, the only one of the class, or the one without parameters
+         */
+        private static Constructor<?> constructorOf(Class<?> type) {
+            Constructor<?>[] constructors = type.getDeclaredConstructors();
+            Constructor<?> autowired = null;
+            for (Constructor<?> constructor : constructors) {
+                if (constructor.isAnnotationPresent(Autowired.class)) {
+                    if (Objects.nonNull(autowired)) {
+                        throw new IllegalArgumentException("Only one constructor of " + type.getName() + " can be @Autowired");
+                    }
+                    autowired = constructor;
+                }
+            }
+            if (Objects.nonNull(autowired)) {
+                return autowired;
+            } else if (constructors.length == 1) {
+                return constructors[0];
+            }
+            try {
+                return type.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Cannot choose a constructor for " + type.getName()
+                    + ", annotate one with @Autowired or add one without parameters");
+            }
+        }
+
+        private void resolve(BeanGraph graph) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterBeans[i] = graph.find(parameterTypes[i], "parameter " + i + " of " + constructor);
+                addDependency(parameterBeans[i]);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fieldBeans[i] = graph.find(fields[i].getType(), "field " + fields[i]);
+            }
+        }
+
+        private void addDependency(BeanNode dependency) {
+            if (Objects.nonNull(dependency)) {
+                dependencies.add(dependency);
+            }
+        }
+
+        /**
+         * @return The bean, created with the beans it needs the first time, only once even if the first calls come at
+         * the same time
+         */
+        Object getInstance() {
+            Object bean = instance;
+            if (Objects.isNull(bean)) {
+                synchronized (lock) {
+                    bean = instance;
+                    if (Objects.isNull(bean)) {
+                        // Constructed already by this thread when a field cycle reaches back to it, since the lock of
+                        // the cycle is held while it's created, or while the eager beans are created
+                        bean = Objects.isNull(constructed) ? create() : constructed;
+                    }
+                }
+            }
+            return bean;
+        }
+
+        private Object create() {
+            try {
+                construct();
+                inject();
+            } catch (RuntimeException e) {
+                // The next request tries again instead of getting a bean without its fields
+                constructed = null;
+                throw e;
+            }
+            publish();
+            return instance;
+        }
+
+        private void construct() {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            Object[] arguments = new Object[parameterTypes.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = Objects.nonNull(parameterBeans[i]) ? parameterBeans[i].getInstance() : nonBeans.apply(parameterTypes[i]);
+            }
+            long start = System.nanoTime();
+            try {
+                constructed = constructor.newInstance(arguments);
+            } catch (InvocationTargetException e) {
+                throw new IllegalArgumentException("Cannot create instance of " + type.getName(), e.getCause());
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot create instance of " + type.getName(), e);
+            }
+            constructorNanos = System.nanoTime() - start;
+        }
+
+        private void inject() {
+            long injection = 0;
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                Object value = Objects.nonNull(fieldBeans[i]) ? fieldBeans[i].getInstance() : nonBeans.apply(field.getType());
+                long start = System.nanoTime();
+                try {
+                    field.setAccessible(true);
+                    field.set(constructed, value);
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalStateException("Cannot inject the autowired field '" + field.getName() + "' of " + type.getName(), e);
+                }
+                injection += System.nanoTime() - start;
+            }
+            injectionNanos = injection;
+        }
+
+        private void publish() {
+            instance = constructed;
+            constructed = null;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        boolean isLazy() {
+            return lazy;
+        }
+
+        boolean isCreated() {
+            return Objects.nonNull(instance);
+        }
+
+        /**
+         * @return Nanoseconds spent in the constructor, zero until the bean is created
+         */
+        long getConstructorNanos() {
+            return isCreated() ? constructorNanos : 0;
+        }
+
+        /**
+         * @return Nanoseconds spent injecting the fields, zero until the bean is created
+         */
+        long getInjectionNanos() {
+            return isCreated() ? injectionNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return type.getName();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package encora.winterframework.context;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Beans of the application, built in two phases
+ * <p>
+ * While the context is initializing, beans are registered by their class from a single thread. Once frozen, every
+ * bean is also indexed by its superclasses and interfaces and the lookup table becomes immutable, so lookups don't
+ * need any synchronization. Classes that are not beans can still be requested after the freeze, their instances are
+ * created on demand and published atomically, so concurrent requests always get the same instance. Lazy beans are
+ * registered with the factory creating them on their first lookup.
+ */
+final class BeanRegistry {
+
+    private final Map<Class<?>, Object> registered = new LinkedHashMap<>();
+
+    private final ConcurrentHashMap<Class<?>, Object> created = new ConcurrentHashMap<>();
+
+    private volatile Map<Class<?>, Object> frozen;
+
+    /**
+     * Add a bean while the context is initializing
+     */
+    void register(Class<?> type, Object bean) {
+        if (Objects.nonNull(frozen)) {
+            throw new IllegalStateException("Cannot register " + type.getName() + " after the context was initialized");
+        }
+        registered.put(type, bean);
+    }
+
+    /**
+     * Add a bean created the first time it's requested
+     *
+     * @param factory Creates the bean, must return the same instance every time
+     */
+    void registerLazy(Class<?> type, Supplier<Object> factory) {
+        register(type, new Deferred(type, factory));
+    }
+
+    /**
+     * End the build phase, resolving the beans of every superclass and interface
+     */
+    void freeze() {
+        Map<Class<?>, List<Object>> candidates = new HashMap<>();
+        for (Map.Entry<Class<?>, Object> bean : registered.entrySet()) {
+            for (Class<?> type : assignableTypes(bean.getKey())) {
+                candidates.computeIfAbsent(type, t -> new ArrayList<>()).add(bean.getValue());
+            }
+        }
+        Map<Class<?>, Object> lookup = new HashMap<>();
+        for (Map.Entry<Class<?>, List<Object>> candidate : candidates.entrySet()) {
+            List<Object> beans = candidate.getValue();
+            lookup.put(candidate.getKey(), beans.size() == 1 ? beans.get(0) : new Ambiguous(candidate.getKey(), beans));
+        }
+        // Beans always win for their own class, even if some subclass is a bean as well
+        lookup.putAll(registered);
+        frozen = Map.copyOf(lookup);
+    }
+
+    /**
+     * @param type The class of the bean or any of its supertypes
+     * @return The bean, creating an instance of the class if there's no bean for it
+     */
+    Object get(Class<?> type) {
+        Map<Class<?>, Object> beans = frozen;
+        Object bean = Objects.isNull(beans) ? registered.get(type) : beans.get(type);
+        if (bean instanceof Ambiguous) {
+            throw new IllegalStateException(bean.toString());
+        } else if (bean instanceof Deferred) {
+            return ((Deferred) bean).factory.get();
+        } else if (Objects.nonNull(bean)) {
+            return bean;
+        }
+        bean = created.get(type);
+        if (Objects.isNull(bean)) {
+            // Not created inside computeIfAbsent, the constructor could look up other beans
+            Object instance = newInstance(type);
+            bean = created.putIfAbsent(type, instance);
+            if (Objects.isNull(bean)) {
+                bean = instance;
+            }
+        }
+        return bean;
+    }
+
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new IllegalArgumentException("Cannot create instance of " + type.getName(), e);
+        }
+    }
+
+    private static List<Class<?>> assignableTypes(Class<?> type) {
+        List<Class<?>> types = new ArrayList<>();
+        for (Class<?> c = type.getSuperclass(); Objects.nonNull(c) && c != Object.class; c = c.getSuperclass()) {
+            types.add(c);
+        }
+        List<Class<?>> pending = new ArrayList<>();
+        for (Class<?> c = type; Objects.nonNull(c); c = c.getSuperclass()) {
+            pending.add(c);
+        }
+        while (!pending.isEmpty()) {
+            for (Class<?> i : pending.remove(pending.size() - 1).getInterfaces()) {
+                if (!types.contains(i)) {
+                    types.add(i);
+                    pending.add(i);
+                }
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Marks a supertype implemented by more than one bean
+     */
+    private static final class Ambiguous {
+
+        private final Class<?> type;
+
+        private final List<Object> beans;
+
+        private Ambiguous(Class<?> type, List<Object> beans) {
+            this.type = type;
+            this.beans = beans;
+        }
+
+        @Override
+        public String toString() {
+            List<String> names = new ArrayList<>();
+            for (Object bean : beans) {
+                names.add(bean instanceof Deferred ? ((Deferred) bean).type.getName() : bean.getClass().getName());
+            }
+            return "More than one bean of " + type.getName() + ": " + names;
+        }
+    }
+
+    /**
+     * Marks a lazy bean that may not be created yet
+     */
+    private static final class Deferred {
+
+        private final Class<?> type;
+
+        private final Supplier<Object> factory;
+
+        private Deferred(Class<?> type, Supplier<Object> factory) {
+            this.type = type;
+            this.factory = factory;
+        }
+    }
+}
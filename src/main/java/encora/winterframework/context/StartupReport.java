@@ -0,0 +1,181 @@
+package encora.winterframework.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the startup of the context spent its time, to tune the cold start
+ * <p>
+ * Phases are measured with the wall clock, while the instantiation and injection times add up the time of every bean,
+ * so they can be longer than the bean creation phase when the beans are created by many threads. Lazy beans are
+ * included once they are created, but not in the phases.
+ */
+public final class StartupReport {
+
+    public enum Phase {
+        // Loading the component indexes and scanning the packages without one
+        SCANNING("scanning"),
+        CLASS_LOADING("classLoading"),
+        // Choosing the constructors and resolving the dependencies of the beans
+        DEPENDENCY_GRAPH("dependencyGraph"),
+        // Creating the eager beans and injecting their fields
+        BEAN_CREATION("beanCreation"),
+        ROUTE_MAPPING("routeMapping");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<Phase, Long> phases;
+
+    private final long totalNanos;
+
+    private final int threads;
+
+    private final List<BeanGraph.BeanNode> nodes;
+
+    StartupReport(Map<Phase, Long> phases, long totalNanos, int threads, List<BeanGraph.BeanNode> nodes) {
+        this.phases = Collections.unmodifiableMap(new EnumMap<>(phases));
+        this.totalNanos = totalNanos;
+        this.threads = threads;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return Nanoseconds from the start of the initialization until the routes were ready
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return Nanoseconds of every phase, in the order they run
+     */
+    public Map<Phase, Long> getPhases() {
+        return phases;
+    }
+
+    /**
+     * @return Threads creating the eager beans
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return Nanoseconds spent in the constructors of the beans created so far
+     */
+    public long getInstantiationNanos() {
+        long nanos = 0;
+        for (BeanGraph.BeanNode node : nodes) {
+            nanos += node.getConstructorNanos();
+        }
+        return nanos;
+    }
+
+    /**
+     * @return Nanoseconds spent injecting the fields of the beans created so far
+     */
+    public long getInjectionNanos() {
+        long nanos = 0;
+        for (BeanGraph.BeanNode node : nodes) {
+            nanos += node.getInjectionNanos();
+        }
+        return nanos;
+    }
+
+    /**
+     * @return Every bean, the slowest first and the lazy ones not created yet last
+     */
+    public List<BeanTiming> getBeans() {
+        List<BeanTiming> beans = new ArrayList<>(nodes.size());
+        for (BeanGraph.BeanNode node : nodes) {
+            beans.add(new BeanTiming(node.getType().getName(), node.isLazy(), node.isCreated(), node.getConstructorNanos(),
+                node.getInjectionNanos()));
+        }
+        beans.sort(Comparator.comparing(BeanTiming::isCreated).thenComparingLong(BeanTiming::getTotalNanos).reversed());
+        return beans;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(256);
+        text.append(String.format("Startup took %.3f ms", millis(totalNanos)));
+        for (Map.Entry<Phase, Long> phase : phases.entrySet()) {
+            text.append(String.format("%n  %-16s %10.3f ms", phase.getKey().getLabel(), millis(phase.getValue())));
+        }
+        text.append(String.format("%n  %d threads spent %.3f ms in constructors and %.3f ms injecting fields", threads,
+            millis(getInstantiationNanos()), millis(getInjectionNanos())));
+        for (BeanTiming bean : getBeans()) {
+            if (bean.isCreated()) {
+                text.append(String.format("%n  %10.3f ms %s%s", millis(bean.getTotalNanos()), bean.getName(), bean.isLazy() ? " (lazy)" : ""));
+            } else {
+                text.append(String.format("%n  %13s %s (lazy)", "-", bean.getName()));
+            }
+        }
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * The time a bean took to be created
+     */
+    public static final class BeanTiming {
+
+        private final String name;
+
+        private final boolean lazy;
+
+        private final boolean created;
+
+        private final long constructorNanos;
+
+        private final long injectionNanos;
+
+        private BeanTiming(String name, boolean lazy, boolean created, long constructorNanos, long injectionNanos) {
+            this.name = name;
+            this.lazy = lazy;
+            this.created = created;
+            this.constructorNanos = constructorNanos;
+            this.injectionNanos = injectionNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        public boolean isCreated() {
+            return created;
+        }
+
+        public long getConstructorNanos() {
+            return constructorNanos;
+        }
+
+        public long getInjectionNanos() {
+            return injectionNanos;
+        }
+
+        public long getTotalNanos() {
+            return constructorNanos + injectionNanos;
+        }
+    }
+}
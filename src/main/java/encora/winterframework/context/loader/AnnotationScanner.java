@@ -1,61 +1,281 @@
 package encora.winterframework.context.loader;
 
-import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Finds the classes annotated with an annotation, directly or through other annotations (i.e. {@code @Service} is
+ * annotated with {@code @Component}), reading the class files from directories and jars without loading them.
+ * <p>
+ * Only the classes that match are loaded, without initializing them. Annotations that are not part of the scanned
+ * packages are loaded to check their own annotations.
+ */
 public class AnnotationScanner {
 
     private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
 
-    @SuppressWarnings("unchecked")
+    // Below this number of class files, a task parses them instead of splitting the work
+    private static final int PARSE_THRESHOLD = 64;
+
+    private AnnotationScanner() {}
+
     public static List<Class<?>> scanAnnotatedClasses(String packageName, Class<? extends Annotation> targetAnnotation) {
+        return scanAnnotatedClasses(targetAnnotation, Collections.singletonList(packageName));
+    }
+
+    /**
+     * Scan several packages in parallel, looking for the concrete classes with an annotation
+     *
+     * @param targetAnnotation The annotation to look for
+     * @param packageNames     The packages to scan, including their subpackages
+     * @return The annotated classes
+     */
+    public static List<Class<?>> scanAnnotatedClasses(Class<? extends Annotation> targetAnnotation, List<String> packageNames) {
+        ClassLoader classLoader = getClassLoader();
+        Map<String, ClassFileInfo> classFiles = new LinkedHashMap<>();
+        // Packages in the same jar share its file system, which stays open until every package is scanned
+        try (JarFileSystems jars = new JarFileSystems()) {
+            List<ForkJoinTask<List<ClassFileInfo>>> tasks = new ArrayList<>();
+            for (String packageName : packageNames) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> scanPackage(classLoader, packageName, jars)));
+            }
+            for (ForkJoinTask<List<ClassFileInfo>> task : tasks) {
+                for (ClassFileInfo info : task.join()) {
+                    classFiles.putIfAbsent(info.getClassName(), info);
+                }
+            }
+        }
+
+        StereotypeResolver resolver = new StereotypeResolver(targetAnnotation.getName(), classFiles, classLoader);
         List<Class<?>> classList = new ArrayList<>();
-        try {
-            // We need the path as directory to get the URL of the classes
-            String packagePath = packageName.replace('.', '/');
-            URL pathURL = ClassLoader.getSystemResource(packagePath);
+        for (ClassFileInfo info : classFiles.values()) {
+            if (info.isConcrete() && !info.isAnnotation() && resolver.isAnnotated(info.getAnnotations())) {
+                try {
+                    classList.add(Class.forName(info.getClassName(), false, classLoader));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    log.warning("Error loading class '" + info.getClassName() + "' - " + e.getMessage());
+                }
+            }
+        }
+        return classList;
+    }
+
+    private static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return Objects.isNull(classLoader) ? AnnotationScanner.class.getClassLoader() : classLoader;
+    }
 
-            // We get all the class files in the specified URL
-            if (Objects.isNull(pathURL)) {
+    private static List<ClassFileInfo> scanPackage(ClassLoader classLoader, String packageName, JarFileSystems jars) {
+        // We need the path as directory to get the URLs of the classes
+        String packagePath = packageName.replace('.', '/');
+        List<ClassFileInfo> classFiles = new ArrayList<>();
+        try {
+            Enumeration<URL> roots = classLoader.getResources(packagePath);
+            if (!roots.hasMoreElements()) {
                 log.warning("Package '" + packageName + "' does not exist.");
-                return classList;
-            }
-            File file = new File(pathURL.getPath());
-
-            // Iterate through the classes and keep the ones using the annotation
-            List<String> classNames = new ArrayList<>();
-            getFileClasses(Objects.requireNonNull(file), classNames, packageName.substring(0, packageName.lastIndexOf('.')));
-            for (String clazz : classNames) {
-                Class<?> actualClass = Class.forName(clazz);
-                if (actualClass.isAnnotationPresent(targetAnnotation)) {
-                    if (actualClass.isAnnotation()) {
-                        classList.addAll(scanAnnotatedClasses(packageName, (Class<? extends Annotation>) actualClass));
-                    } else {
-                        classList.add(actualClass);
-                    }
+            }
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if (root.getProtocol().equals("file")) {
+                    classFiles.addAll(parseClassFiles(Paths.get(root.toURI())));
+                } else if (root.getProtocol().equals("jar")) {
+                    classFiles.addAll(scanJar(root, packagePath, jars));
+                } else {
+                    log.warning("Cannot scan classes from '" + root + "'");
                 }
             }
-        } catch (ClassNotFoundException e) {
+        } catch (IOException | URISyntaxException e) {
             log.warning("Error loading classes from package '" + packageName + "' - " + e.getMessage());
-            e.printStackTrace();
         }
-        return classList;
+        return classFiles;
     }
 
-    public static void getFileClasses(File file, List<String> classNames, String parentPackage) {
-        String fileName = parentPackage + "." + file.getName();
-        if (file.isFile()) {
-            classNames.add(fileName.substring(0, fileName.lastIndexOf('.')));
-        } else {
-            for (File f : Objects.requireNonNull(file.listFiles())) {
-                getFileClasses(f, classNames, fileName);
+    private static List<ClassFileInfo> scanJar(URL root, String packagePath, JarFileSystems jars) throws IOException, URISyntaxException {
+        // URLs look like 'jar:file:/app.jar!/encora/app'
+        String url = root.toString();
+        URI jarURI = new URI(url.substring(0, url.indexOf("!/")));
+        return parseClassFiles(jars.get(jarURI).getPath(packagePath));
+    }
+
+    private static List<ClassFileInfo> parseClassFiles(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(p -> p.toString().endsWith(".class") && !p.getFileName().toString().equals("module-info.class"))
+                .collect(Collectors.toList());
+        }
+        return new ParseTask(files).invoke();
+    }
+
+    private static ClassFileInfo parseClassFile(Path file) {
+        try {
+            // Class files are small, reading them is cheaper than mapping them
+            return ClassFileInfo.parse(ByteBuffer.wrap(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read class file " + file, e);
+        } catch (RuntimeException e) {
+            log.warning("Skipping malformed class file '" + file + "' - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parse a list of class files, splitting it between the pool workers
+     */
+    private static class ParseTask extends RecursiveTask<List<ClassFileInfo>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Path> files;
+
+        private ParseTask(List<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected List<ClassFileInfo> compute() {
+            if (files.size() > PARSE_THRESHOLD) {
+                int middle = files.size() / 2;
+                ParseTask left = new ParseTask(files.subList(0, middle));
+                left.fork();
+                List<ClassFileInfo> right = new ParseTask(files.subList(middle, files.size())).compute();
+                List<ClassFileInfo> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            List<ClassFileInfo> result = new ArrayList<>(files.size());
+            for (Path file : files) {
+                ClassFileInfo info = parseClassFile(file);
+                if (Objects.nonNull(info)) {
+                    result.add(info);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The jar file systems opened by a scan, each jar is opened once and closed when the whole scan is over
+     * File systems opened by someone else are used but left open.
+     */
+    private static class JarFileSystems implements Closeable {
+
+        private final Map<URI, FileSystem> opened = new HashMap<>();
+
+        private synchronized FileSystem get(URI jarURI) throws IOException {
+            FileSystem fileSystem = opened.get(jarURI);
+            if (Objects.nonNull(fileSystem)) {
+                return fileSystem;
+            }
+            try {
+                fileSystem = FileSystems.newFileSystem(jarURI, Collections.emptyMap());
+                opened.put(jarURI, fileSystem);
+                return fileSystem;
+            } catch (FileSystemAlreadyExistsException e) {
+                return FileSystems.getFileSystem(jarURI);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            for (Map.Entry<URI, FileSystem> jar : opened.entrySet()) {
+                try {
+                    jar.getValue().close();
+                } catch (IOException e) {
+                    log.warning("Cannot close '" + jar.getKey() + "' - " + e.getMessage());
+                }
+            }
+            opened.clear();
+        }
+    }
+
+    /**
+     * Decides if a list of annotations includes the target one, directly or through meta-annotations
+     */
+    private static class StereotypeResolver {
+
+        private final String targetAnnotation;
+
+        private final Map<String, ClassFileInfo> classFiles;
+
+        private final ClassLoader classLoader;
+
+        private final Map<String, Boolean> resolved = new HashMap<>();
+
+        private StereotypeResolver(String targetAnnotation, Map<String, ClassFileInfo> classFiles, ClassLoader classLoader) {
+            this.targetAnnotation = targetAnnotation;
+            this.classFiles = classFiles;
+            this.classLoader = classLoader;
+        }
+
+        private boolean isAnnotated(List<String> annotations) {
+            for (String annotation : annotations) {
+                if (isStereotype(annotation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isStereotype(String annotation) {
+            if (annotation.equals(targetAnnotation)) {
+                return true;
+            }
+            Boolean cached = resolved.get(annotation);
+            if (Objects.nonNull(cached)) {
+                return cached;
+            }
+            // Break cycles like @Documented, which is annotated with itself
+            resolved.put(annotation, false);
+            boolean result = isAnnotated(getMetaAnnotations(annotation));
+            resolved.put(annotation, result);
+            return result;
+        }
+
+        private List<String> getMetaAnnotations(String annotation) {
+            ClassFileInfo info = classFiles.get(annotation);
+            if (Objects.nonNull(info)) {
+                return info.getAnnotations();
+            }
+            if (annotation.startsWith("java.lang.annotation.")) {
+                return Collections.emptyList();
+            }
+            try {
+                List<String> metaAnnotations = new ArrayList<>();
+                for (Annotation meta : Class.forName(annotation, false, classLoader).getAnnotations()) {
+                    metaAnnotations.add(meta.annotationType().getName());
+                }
+                return metaAnnotations;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return Collections.emptyList();
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,225 @@
+package encora.winterframework.context.loader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a class file needed to find components, read straight from its bytes without loading the class
+ */
+final class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.US_ASCII);
+
+    private final String className;
+
+    private final int accessFlags;
+
+    private final List<String> annotations;
+
+    private ClassFileInfo(String className, int accessFlags, List<String> annotations) {
+        this.className = className;
+        this.accessFlags = accessFlags;
+        this.annotations = annotations;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return Names of the classes of the runtime visible annotations
+     */
+    List<String> getAnnotations() {
+        return annotations;
+    }
+
+    boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * @return Whether instances of the class can be created, meaning it's not an interface nor an abstract class
+     */
+    boolean isConcrete() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) == 0;
+    }
+
+    /**
+     * Parse a class file, following the structure in chapter 4 of the JVM specification
+     *
+     * @param bytes The content of the class file
+     * @return The parsed information
+     */
+    static ClassFileInfo parse(ByteBuffer bytes) {
+        if (bytes.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        bytes.getShort(); // minor version
+        bytes.getShort(); // major version
+
+        // Strings are only decoded when needed, the pool keeps the position of each one
+        int poolSize = bytes.getShort() & 0xFFFF;
+        int[] utf8 = new int[poolSize];
+        int[] classNameIndexes = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = bytes.get() & 0xFF;
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = bytes.position();
+                    int length = bytes.getShort() & 0xFFFF;
+                    bytes.position(bytes.position() + length);
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = bytes.getShort() & 0xFFFF;
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    bytes.position(bytes.position() + 2);
+                    break;
+                case 15: // MethodHandle
+                    bytes.position(bytes.position() + 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    bytes.position(bytes.position() + 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    bytes.position(bytes.position() + 8);
+                    // They take two entries of the pool
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        int accessFlags = bytes.getShort() & 0xFFFF;
+        String className = readUtf8(bytes, utf8[classNameIndexes[bytes.getShort() & 0xFFFF]]).replace('/', '.');
+        bytes.getShort(); // super class
+        int interfaces = bytes.getShort() & 0xFFFF;
+        bytes.position(bytes.position() + interfaces * 2);
+        skipMembers(bytes); // fields
+        skipMembers(bytes); // methods
+
+        List<String> annotations = Collections.emptyList();
+        int attributes = bytes.getShort() & 0xFFFF;
+        for (int i = 0; i < attributes; i++) {
+            int name = utf8[bytes.getShort() & 0xFFFF];
+            int length = bytes.getInt();
+            if (utf8Equals(bytes, name, RUNTIME_VISIBLE_ANNOTATIONS)) {
+                annotations = readAnnotations(bytes, utf8);
+            } else {
+                bytes.position(bytes.position() + length);
+            }
+        }
+        return new ClassFileInfo(className, accessFlags, annotations);
+    }
+
+    private static void skipMembers(ByteBuffer bytes) {
+        int count = bytes.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            bytes.position(bytes.position() + 6); // access flags, name and descriptor
+            int attributes = bytes.getShort() & 0xFFFF;
+            for (int j = 0; j < attributes; j++) {
+                bytes.getShort(); // name
+                int length = bytes.getInt();
+                bytes.position(bytes.position() + length);
+            }
+        }
+    }
+
+    private static List<String> readAnnotations(ByteBuffer bytes, int[] utf8) {
+        int count = bytes.getShort() & 0xFFFF;
+        List<String> annotations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String descriptor = readUtf8(bytes, utf8[bytes.getShort() & 0xFFFF]);
+            // Descriptors look like 'Lpackage/Name;'
+            annotations.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+            skipElementValuePairs(bytes);
+        }
+        return annotations;
+    }
+
+    private static void skipElementValuePairs(ByteBuffer bytes) {
+        int pairs = bytes.getShort() & 0xFFFF;
+        for (int i = 0; i < pairs; i++) {
+            bytes.getShort(); // element name
+            skipElementValue(bytes);
+        }
+    }
+
+    private static void skipElementValue(ByteBuffer bytes) {
+        char tag = (char) (bytes.get() & 0xFF);
+        switch (tag) {
+            case 'e': // enum constant
+                bytes.position(bytes.position() + 4);
+                break;
+            case '@': // nested annotation
+                bytes.getShort();
+                skipElementValuePairs(bytes);
+                break;
+            case '[': // array
+                int values = bytes.getShort() & 0xFFFF;
+                for (int i = 0; i < values; i++) {
+                    skipElementValue(bytes);
+                }
+                break;
+            default: // constants and classes
+                bytes.getShort();
+        }
+    }
+
+    private static boolean utf8Equals(ByteBuffer bytes, int position, byte[] expected) {
+        int length = bytes.getShort(position) & 0xFFFF;
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes.get(position + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode the modified UTF-8 string at an absolute position, without moving the buffer
+     */
+    private static String readUtf8(ByteBuffer bytes, int position) {
+        int length = bytes.getShort(position) & 0xFFFF;
+        StringBuilder value = new StringBuilder(length);
+        int i = position + 2;
+        int end = i + length;
+        while (i < end) {
+            int b = bytes.get(i++) & 0xFF;
+            if (b < 0x80) {
+                value.append((char) b);
+            } else if ((b & 0xE0) == 0xC0) {
+                value.append((char) (((b & 0x1F) << 6) | (bytes.get(i++) & 0x3F)));
+            } else {
+                value.append((char) (((b & 0x0F) << 12) | ((bytes.get(i++) & 0x3F) << 6) | (bytes.get(i++) & 0x3F)));
+            }
+        }
+        return value.toString();
+    }
+}
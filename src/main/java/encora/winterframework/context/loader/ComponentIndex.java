@@ -0,0 +1,225 @@
+package encora.winterframework.context.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import encora.winterframework.annotation.Autowired;
+import encora.winterframework.annotation.RESTController;
+import encora.winterframework.annotation.RequestMapping;
+
+/**
+ * Components of the application, with their injection points and request mappings
+ * <p>
+ * It's generated at compile time by the {@link encora.winterframework.processor.ComponentIndexProcessor} into
+ * {@value #LOCATION}, so the context can start without walking the classpath. Each line of the file is an entry
+ * with tab separated values:
+ * <pre>
+ *     component  [class]
+ *     autowired  [class]  [field]
+ *     route      [class]  [HTTP method]  [path template]  [method]  [comma separated parameter types]
+ * </pre>
+ */
+public final class ComponentIndex {
+
+    public static final String LOCATION = "META-INF/winter/components.index";
+
+    public static final String COMPONENT = "component";
+
+    public static final String AUTOWIRED = "autowired";
+
+    public static final String ROUTE = "route";
+
+    private final Map<String, ComponentEntry> components = new LinkedHashMap<>();
+
+    /**
+     * Load the generated indexes available in the class loader
+     *
+     * @param classLoader The class loader of the application
+     * @param packages    The packages of the application, the components out of them are ignored
+     * @return The components of the packages, or null if there's no index in the class loader
+     */
+    public static ComponentIndex load(ClassLoader classLoader, String... packages) {
+        try {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            if (!resources.hasMoreElements()) {
+                return null;
+            }
+            ComponentIndex index = new ComponentIndex();
+            while (resources.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        index.addLine(line, packages);
+                    }
+                }
+            }
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the component index", e);
+        }
+    }
+
+    /**
+     * Build the index from already loaded classes, used when there's no generated index
+     *
+     * @param classes The component classes
+     * @return The components with their injection points and request mappings
+     */
+    public static ComponentIndex fromClasses(List<Class<?>> classes) {
+        ComponentIndex index = new ComponentIndex();
+        for (Class<?> clazz : classes) {
+            ComponentEntry entry = index.components.computeIfAbsent(clazz.getName(), ComponentEntry::new);
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Autowired.class)) {
+                    entry.autowiredFields.add(field.getName());
+                }
+            }
+            if (clazz.isAnnotationPresent(RESTController.class)) {
+                String controllerPath = clazz.getAnnotation(RESTController.class).value();
+                for (Method method : clazz.getDeclaredMethods()) {
+                    if (method.isAnnotationPresent(RequestMapping.class)) {
+                        RequestMapping mapping = method.getAnnotation(RequestMapping.class);
+                        List<String> parameterTypes = new ArrayList<>();
+                        for (Class<?> type : method.getParameterTypes()) {
+                            parameterTypes.add(type.getTypeName());
+                        }
+                        entry.routes.add(new RouteEntry(mapping.method(), template(controllerPath, mapping.path()), method.getName(),
+                            parameterTypes));
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return Full path template of a request mapping
+     */
+    public static String template(String controllerPath, String mappingPath) {
+        return "/" + controllerPath + "/" + mappingPath;
+    }
+
+    public boolean isEmpty() {
+        return components.isEmpty();
+    }
+
+    public List<ComponentEntry> getComponents() {
+        return new ArrayList<>(components.values());
+    }
+
+    private void addLine(String line, String[] packages) {
+        String[] values = line.split("\t");
+        if (values.length < 2 || !isInPackages(values[1], packages)) {
+            return;
+        }
+        ComponentEntry entry = components.computeIfAbsent(values[1], ComponentEntry::new);
+        if (values[0].equals(AUTOWIRED) && values.length == 3) {
+            entry.autowiredFields.add(values[2]);
+        } else if (values[0].equals(ROUTE) && values.length >= 5) {
+            List<String> parameterTypes = new ArrayList<>();
+            if (values.length == 6 && !values[5].isEmpty()) {
+                Collections.addAll(parameterTypes, values[5].split(","));
+            }
+            entry.routes.add(new RouteEntry(values[2], values[3], values[4], parameterTypes));
+        }
+    }
+
+    private static boolean isInPackages(String className, String[] packages) {
+        for (String pkg : packages) {
+            if (className.startsWith(pkg + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A component class with its injection points and request mappings
+     */
+    public static final class ComponentEntry {
+
+        private final String className;
+
+        private final List<String> autowiredFields = new ArrayList<>();
+
+        private final List<RouteEntry> routes = new ArrayList<>();
+
+        private ComponentEntry(String className) {
+            this.className = className;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public List<String> getAutowiredFields() {
+            return autowiredFields;
+        }
+
+        public List<RouteEntry> getRoutes() {
+            return routes;
+        }
+    }
+
+    /**
+     * A request mapping of a controller
+     */
+    public static final class RouteEntry {
+
+        private final String httpMethod;
+
+        private final String template;
+
+        private final String methodName;
+
+        private final List<String> parameterTypes;
+
+        private RouteEntry(String httpMethod, String template, String methodName, List<String> parameterTypes) {
+            this.httpMethod = httpMethod;
+            this.template = template;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+        }
+
+        public String getHttpMethod() {
+            return httpMethod;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        /**
+         * @param clazz The controller class
+         * @return The handler method of the mapping
+         */
+        public Method resolveMethod(Class<?> clazz) throws NoSuchMethodException {
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && method.getParameterCount() == parameterTypes.size()) {
+                    Class<?>[] types = method.getParameterTypes();
+                    boolean matches = true;
+                    for (int i = 0; i < types.length && matches; i++) {
+                        matches = types[i].getTypeName().equals(parameterTypes.get(i));
+                    }
+                    if (matches) {
+                        return method;
+                    }
+                }
+            }
+            throw new NoSuchMethodException(clazz.getName() + "." + methodName + parameterTypes);
+        }
+    }
+}
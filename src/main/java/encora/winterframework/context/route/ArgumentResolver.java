@@ -0,0 +1,18 @@
+package encora.winterframework.context.route;
+
+import java.io.IOException;
+
+/**
+ * Produces one argument of a handler method from the request
+ * Resolvers are built once when the route is registered, with the name, position and type converter of their
+ * parameter already looked up.
+ */
+@FunctionalInterface
+public interface ArgumentResolver {
+
+    /**
+     * @return The argument, converted to the type of the parameter
+     * @throws IllegalArgumentException If the request has no valid value for the parameter
+     */
+    Object resolve(RequestValues request) throws IOException, ReflectiveOperationException;
+}
@@ -0,0 +1,134 @@
+package encora.winterframework.context.route;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import encora.winterframework.annotation.PathParam;
+import encora.winterframework.annotation.QueryParam;
+import encora.winterframework.annotation.RequestBody;
+import encora.winterframework.annotation.RequestHeader;
+import encora.winterframework.util.json.ClassMetadata;
+
+/**
+ * Builds the resolvers of the parameters of a handler method when its route is registered
+ * Every parameter must be bound to a path variable, a query parameter, a header or the body, so mistakes are
+ * found at startup instead of on the first request.
+ */
+final class ArgumentResolvers {
+
+    private ArgumentResolvers() {}
+
+    /**
+     * @param method        The handler method
+     * @param variableNames The variables of the path template, in order
+     * @return The resolver of every parameter of the method, in order
+     * @throws IllegalArgumentException If a parameter can't be bound
+     */
+    static ArgumentResolver[] compile(Method method, List<String> variableNames) {
+        Parameter[] parameters = method.getParameters();
+        ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
+        int pathParams = 0;
+        boolean body = false;
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            PathParam pathParam = parameter.getAnnotation(PathParam.class);
+            QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+            RequestHeader header = parameter.getAnnotation(RequestHeader.class);
+            if (Objects.nonNull(pathParam)) {
+                int index = variableIndex(method, parameter, pathParam.value(), pathParams++, variableNames);
+                String description = "path variable '" + variableNames.get(index) + "'";
+                resolvers[i] = scalar(parameter, description, request -> request.getPathVariable(index));
+            } else if (Objects.nonNull(queryParam)) {
+                String name = nameOf(method, parameter, queryParam.value(), "@QueryParam");
+                resolvers[i] = scalar(parameter, "query parameter '" + name + "'", request -> request.getQueryParameter(name));
+            } else if (Objects.nonNull(header)) {
+                String name = header.value();
+                resolvers[i] = scalar(parameter, "header '" + name + "'", request -> request.getHeader(name));
+            } else if (parameter.isAnnotationPresent(RequestBody.class)) {
+                if (body) {
+                    throw new IllegalArgumentException("Handler " + method + " can't have more than one @RequestBody");
+                }
+                body = true;
+                resolvers[i] = body(parameter);
+            } else {
+                throw new IllegalArgumentException(String.format(
+                    "Parameter '%s' of handler %s must be annotated with @PathParam, @QueryParam, @RequestHeader or @RequestBody",
+                    parameter.getName(), method));
+            }
+        }
+        return resolvers;
+    }
+
+    private static int variableIndex(Method method, Parameter parameter, String value, int position, List<String> variableNames) {
+        int index;
+        if (!value.isEmpty()) {
+            index = variableNames.indexOf(value);
+        } else if (parameter.isNamePresent()) {
+            index = variableNames.indexOf(parameter.getName());
+        } else {
+            index = position < variableNames.size() ? position : -1;
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Parameter '%s' of handler %s is bound to a variable missing from the path %s",
+                parameter.getName(), method, variableNames));
+        }
+        return index;
+    }
+
+    private static String nameOf(Method method, Parameter parameter, String value, String annotation) {
+        if (!value.isEmpty()) {
+            return value;
+        } else if (parameter.isNamePresent()) {
+            return parameter.getName();
+        }
+        throw new IllegalArgumentException(String.format(
+            "Parameter '%s' of handler %s needs a name in its %s, or the handler compiled with -parameters",
+            parameter.getName(), method, annotation));
+    }
+
+    /**
+     * Values missing from the request are null, Optional.empty() for optional parameters, and an error for
+     * primitives that can't be null
+     */
+    private static ArgumentResolver scalar(Parameter parameter, String description, Function<RequestValues, String> source) {
+        Class<?> type = parameter.getType();
+        boolean optional = type == Optional.class;
+        Class<?> valueType = optional ? ClassMetadata.rawClass(ClassMetadata.typeArgument(parameter.getParameterizedType(), 0)) : type;
+        boolean primitive = type.isPrimitive();
+        TypeConverter converter = TypeConverter.of(valueType);
+        String typeName = valueType.getSimpleName();
+        return request -> {
+            String text = source.apply(request);
+            if (Objects.isNull(text)) {
+                if (primitive) {
+                    throw new IllegalArgumentException("Missing " + description);
+                }
+                return optional ? Optional.empty() : null;
+            }
+            Object value;
+            try {
+                value = converter.convert(text);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Invalid %s, '%s' is not a valid %s", description, text, typeName), e);
+            }
+            return optional ? Optional.of(value) : value;
+        };
+    }
+
+    private static ArgumentResolver body(Parameter parameter) {
+        Type type = parameter.getParameterizedType();
+        boolean primitive = parameter.getType().isPrimitive();
+        return request -> {
+            Object value = request.readBody(type);
+            if (Objects.isNull(value) && primitive) {
+                throw new IllegalArgumentException("Missing request body");
+            }
+            return value;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package encora.winterframework.context.route;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * The parts of a request the handler arguments are bound from, implemented by the server
+ */
+public interface RequestValues {
+
+    /**
+     * @param index Position of the variable in the template
+     * @return The decoded value of the path variable
+     */
+    String getPathVariable(int index);
+
+    /**
+     * @return The decoded value of the first query parameter with the name, or null if there's none
+     */
+    String getQueryParameter(String name);
+
+    /**
+     * @return The first value of the header, or null if there's none
+     */
+    String getHeader(String name);
+
+    /**
+     * @param type The type of the body, with its type arguments
+     * @return The body read with the codec of its Content-Type, or null if it's empty
+     */
+    Object readBody(Type type) throws IOException, ReflectiveOperationException;
+}
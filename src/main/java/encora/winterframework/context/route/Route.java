@@ -0,0 +1,90 @@
+package encora.winterframework.context.route;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A request handler method registered for an HTTP method and a path template
+ */
+public class Route {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final String httpMethod;
+
+    private final String template;
+
+    private final Method handlerMethod;
+
+    private final String[] variableNames;
+
+    private final RouteInvoker invoker;
+
+    private final ArgumentResolver[] resolvers;
+
+    Route(String httpMethod, String template, Method handlerMethod, RouteInvoker invoker, List<String> variableNames) {
+        this.httpMethod = httpMethod;
+        this.template = template;
+        this.handlerMethod = handlerMethod;
+        this.variableNames = variableNames.toArray(new String[0]);
+        this.invoker = invoker;
+        this.resolvers = ArgumentResolvers.compile(handlerMethod, variableNames);
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public Method getHandlerMethod() {
+        return handlerMethod;
+    }
+
+    public RouteInvoker getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Bind the arguments of the handler method with the resolvers built for its parameters
+     *
+     * @param request The values of the request
+     * @return The arguments for {@link RouteInvoker#invoke(Object[])}
+     * @throws IllegalArgumentException If the request has no valid value for some parameter
+     */
+    public Object[] resolveArguments(RequestValues request) throws IOException, ReflectiveOperationException {
+        if (resolvers.length == 0) {
+            return NO_ARGUMENTS;
+        }
+        Object[] arguments = new Object[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            arguments[i] = resolvers[i].resolve(request);
+        }
+        return arguments;
+    }
+
+    /**
+     * @return Names of the template variables, in the order they appear in the path
+     */
+    public List<String> getVariableNames() {
+        return Arrays.asList(variableNames);
+    }
+
+    int indexOfVariable(String name) {
+        for (int i = 0; i < variableNames.length; i++) {
+            if (variableNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod + " " + template;
+    }
+}
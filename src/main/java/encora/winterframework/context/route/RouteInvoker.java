@@ -0,0 +1,108 @@
+package encora.winterframework.context.route;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Invoker of a handler method compiled once when the routes are registered
+ * The method handle is already bound to the controller instance, so invoking it does no reflection nor bean lookup.
+ * Invokers of lazy controllers bind it on their first call instead.
+ */
+public final class RouteInvoker {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    // Null when the controller is lazy, the handle bound on the first call is kept in bound instead
+    private final MethodHandle handle;
+
+    private final int parameterCount;
+
+    private final MethodHandle unbound;
+
+    private final Supplier<?> controller;
+
+    private volatile MethodHandle bound;
+
+    private RouteInvoker(MethodHandle handle, int parameterCount, MethodHandle unbound, Supplier<?> controller) {
+        this.handle = handle;
+        this.parameterCount = parameterCount;
+        this.unbound = unbound;
+        this.controller = controller;
+    }
+
+    /**
+     * @param method     The handler method
+     * @param controller The instance to call the method on, ignored for static methods
+     * @return The invoker for the method
+     */
+    public static RouteInvoker of(Method method, Object controller) {
+        MethodHandle handle = unreflect(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            handle = handle.bindTo(controller);
+        }
+        return new RouteInvoker(spread(handle, method.getParameterCount()), method.getParameterCount(), null, null);
+    }
+
+    /**
+     * @param method     The handler method
+     * @param controller Gives the instance to call the method on the first time the route is called, only once even
+     *                   when the first calls come at the same time
+     * @return The invoker for the method
+     */
+    public static RouteInvoker ofLazy(Method method, Supplier<?> controller) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return of(method, null);
+        }
+        return new RouteInvoker(null, method.getParameterCount(), unreflect(method), controller);
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access handler method " + method, e);
+        }
+    }
+
+    // Normalize every handler to (Object[])Object so they can all be called with invokeExact
+    private static MethodHandle spread(MethodHandle handle, int parameterCount) {
+        return handle.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @param args The arguments for the handler method
+     * @return The value returned by the handler method, null for void methods
+     * @throws Throwable Anything thrown by the handler method, unwrapped
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        MethodHandle target = handle;
+        if (Objects.isNull(target)) {
+            target = bind();
+        }
+        return (Object) target.invokeExact(args);
+    }
+
+    private MethodHandle bind() {
+        MethodHandle target = bound;
+        if (Objects.isNull(target)) {
+            synchronized (this) {
+                target = bound;
+                if (Objects.isNull(target)) {
+                    target = spread(unbound.bindTo(controller.get()), parameterCount);
+                    bound = target;
+                }
+            }
+        }
+        return target;
+    }
+}
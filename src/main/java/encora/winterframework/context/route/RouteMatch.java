@@ -0,0 +1,52 @@
+package encora.winterframework.context.route;
+
+/**
+ * Result of a successful route lookup
+ * The path variables are kept as offsets into the requested path and only turned into strings on demand
+ */
+public class RouteMatch {
+
+    private final Route route;
+
+    private final String path;
+
+    private final int[] bounds;
+
+    RouteMatch(Route route, String path, int[] bounds) {
+        this.route = route;
+        this.path = path;
+        this.bounds = bounds;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getVariableCount() {
+        return route.getVariableNames().size();
+    }
+
+    /**
+     * @param index Position of the variable in the template
+     * @return Value of the variable in the requested path
+     */
+    public String getVariable(int index) {
+        if (index < 0 || index >= getVariableCount()) {
+            throw new IndexOutOfBoundsException("Route '" + route + "' has no variable at index " + index);
+        }
+        return path.substring(bounds[index * 2], bounds[index * 2 + 1]);
+    }
+
+    /**
+     * @param name Name of the variable in the template
+     * @return Value of the variable in the requested path, or null if the template has no such variable
+     */
+    public String getVariable(String name) {
+        int index = route.indexOfVariable(name);
+        return index < 0 ? null : getVariable(index);
+    }
+}
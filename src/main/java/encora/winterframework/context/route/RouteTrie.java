@@ -0,0 +1,277 @@
+package encora.winterframework.context.route;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Segment trie with the registered routes, one branch per HTTP method
+ * <p>
+ * Templates are split by '/' and each segment can be:
+ * <ul>
+ *     <li>Static text, i.e. 'orders'</li>
+ *     <li>A variable matching a single segment, i.e. '{id}'</li>
+ *     <li>An anonymous wildcard matching a single segment: '*'</li>
+ *     <li>A catch-all variable matching the rest of the path, only as last segment: '{*name}' or '**'</li>
+ * </ul>
+ * Static segments take precedence over variables, and those over catch-all variables.
+ * <p>
+ * Routes are added while the context is initializing and {@link #compile()} must be called before any lookup.
+ * The compiled trie is immutable, so lookups are safe from any thread.
+ */
+public class RouteTrie {
+
+    private static final String CATCH_ALL = "**";
+
+    private final Map<String, Node> roots = new HashMap<>();
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private int maxVariables;
+
+    private boolean compiled;
+
+    /**
+     * Register a handler method
+     *
+     * @param httpMethod    The HTTP method, i.e. 'GET'
+     * @param template      The path template, i.e. '/orders/{id}/items/{itemId}'
+     * @param handlerMethod The method handling the requests
+     * @param controller    The instance the handler method is invoked on
+     * @return The registered route
+     */
+    public Route add(String httpMethod, String template, Method handlerMethod, Object controller) {
+        return add(httpMethod, template, handlerMethod, RouteInvoker.of(handlerMethod, controller));
+    }
+
+    /**
+     * Register a handler method with its invoker, i.e. one creating the controller on the first request
+     *
+     * @param httpMethod    The HTTP method, i.e. 'GET'
+     * @param template      The path template, i.e. '/orders/{id}/items/{itemId}'
+     * @param handlerMethod The method handling the requests
+     * @param invoker       The invoker of the handler method
+     * @return The registered route
+     */
+    public Route add(String httpMethod, String template, Method handlerMethod, RouteInvoker invoker) {
+        if (compiled) {
+            throw new IllegalStateException("Cannot add route '" + template + "' after the routes were compiled");
+        }
+        Node node = roots.computeIfAbsent(httpMethod, m -> new Node());
+        List<String> variableNames = new ArrayList<>();
+        List<String> segments = splitTemplate(template);
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (segment.equals(CATCH_ALL) || segment.startsWith("{*")) {
+                if (i != segments.size() - 1) {
+                    throw new IllegalArgumentException("Catch-all segment must be the last one in '" + template + "'");
+                }
+                variableNames.add(segment.equals(CATCH_ALL) ? CATCH_ALL : variableName(segment.substring(2), template));
+                if (Objects.isNull(node.catchAllChild)) {
+                    node.catchAllChild = new Node();
+                }
+                node = node.catchAllChild;
+            } else if (segment.equals("*") || segment.startsWith("{")) {
+                variableNames.add(segment.equals("*") ? "*" : variableName(segment.substring(1), template));
+                if (Objects.isNull(node.variableChild)) {
+                    node.variableChild = new Node();
+                }
+                node = node.variableChild;
+            } else {
+                node = node.staticChildrenBuilder.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (Objects.nonNull(node.route)) {
+            throw new IllegalStateException(
+                String.format("Duplicate mapping for '%s %s': %s and %s", httpMethod, template, node.route.getHandlerMethod(),
+                    handlerMethod));
+        }
+        String normalized = "/" + String.join("/", segments);
+        node.route = new Route(httpMethod, normalized, handlerMethod, invoker, variableNames);
+        routes.add(node.route);
+        maxVariables = Math.max(maxVariables, variableNames.size());
+        return node.route;
+    }
+
+    /**
+     * Freeze the trie, building the lookup tables of every node
+     */
+    public void compile() {
+        for (Node root : roots.values()) {
+            root.compile();
+        }
+        compiled = true;
+    }
+
+    /**
+     * @return All the registered routes
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Find the route handling a request
+     *
+     * @param httpMethod The requested HTTP method
+     * @param path       The requested path, without query string
+     * @return The matched route with its path variables, or null if there's no route for the path
+     */
+    public RouteMatch find(String httpMethod, String path) {
+        if (!compiled) {
+            throw new IllegalStateException("Routes must be compiled before doing any lookup");
+        }
+        Node root = roots.get(httpMethod);
+        if (Objects.isNull(root)) {
+            return null;
+        }
+        int[] bounds = maxVariables == 0 ? null : new int[maxVariables * 2];
+        Route route = root.match(path, 0, bounds, 0);
+        return Objects.isNull(route) ? null : new RouteMatch(route, path, bounds);
+    }
+
+    /**
+     * @param path The requested path
+     * @return The HTTP methods having a route for the path
+     */
+    public Set<String> findAllowedMethods(String path) {
+        Set<String> methods = new TreeSet<>();
+        for (Map.Entry<String, Node> root : roots.entrySet()) {
+            int[] bounds = maxVariables == 0 ? null : new int[maxVariables * 2];
+            if (Objects.nonNull(root.getValue().match(path, 0, bounds, 0))) {
+                methods.add(root.getKey());
+            }
+        }
+        return methods;
+    }
+
+    private static List<String> splitTemplate(String template) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : template.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private static String variableName(String segment, String template) {
+        if (!segment.endsWith("}") || segment.length() < 2) {
+            throw new IllegalArgumentException("Malformed variable '" + segment + "' in '" + template + "'");
+        }
+        return segment.substring(0, segment.length() - 1);
+    }
+
+    private static class Node {
+
+        private Map<String, Node> staticChildrenBuilder = new LinkedHashMap<>();
+
+        // Open addressing table with the static children, indexed by the String hash of the segment
+        private String[] staticKeys;
+
+        private Node[] staticChildren;
+
+        private Node variableChild;
+
+        private Node catchAllChild;
+
+        private Route route;
+
+        private void compile() {
+            int size = Integer.highestOneBit(Math.max(1, staticChildrenBuilder.size()) * 2 - 1) << 1;
+            staticKeys = new String[size];
+            staticChildren = new Node[size];
+            for (Map.Entry<String, Node> child : staticChildrenBuilder.entrySet()) {
+                int i = child.getKey().hashCode() & (size - 1);
+                while (Objects.nonNull(staticKeys[i])) {
+                    i = (i + 1) & (size - 1);
+                }
+                staticKeys[i] = child.getKey();
+                staticChildren[i] = child.getValue();
+                child.getValue().compile();
+            }
+            if (Objects.nonNull(variableChild)) {
+                variableChild.compile();
+            }
+            if (Objects.nonNull(catchAllChild)) {
+                catchAllChild.compile();
+            }
+            staticChildrenBuilder = null;
+        }
+
+        /**
+         * @param path     The requested path
+         * @param pos      Position where the remaining part of the path starts
+         * @param bounds   Start and end offsets of the variables captured so far
+         * @param variable Index of the next variable to capture
+         * @return The route matching the remaining part of the path
+         */
+        private Route match(String path, int pos, int[] bounds, int variable) {
+            int length = path.length();
+            while (pos < length && path.charAt(pos) == '/') {
+                pos++;
+            }
+            if (pos == length) {
+                if (Objects.nonNull(route)) {
+                    return route;
+                }
+                // A catch-all also matches an empty remainder
+                if (Objects.nonNull(catchAllChild) && Objects.nonNull(catchAllChild.route)) {
+                    bounds[variable * 2] = pos;
+                    bounds[variable * 2 + 1] = pos;
+                    return catchAllChild.route;
+                }
+                return null;
+            }
+
+            int end = pos;
+            int hash = 0;
+            char c;
+            while (end < length && (c = path.charAt(end)) != '/') {
+                hash = 31 * hash + c;
+                end++;
+            }
+
+            Node child = findStaticChild(path, pos, end - pos, hash);
+            if (Objects.nonNull(child)) {
+                Route found = child.match(path, end, bounds, variable);
+                if (Objects.nonNull(found)) {
+                    return found;
+                }
+            }
+            if (Objects.nonNull(variableChild)) {
+                bounds[variable * 2] = pos;
+                bounds[variable * 2 + 1] = end;
+                Route found = variableChild.match(path, end, bounds, variable + 1);
+                if (Objects.nonNull(found)) {
+                    return found;
+                }
+            }
+            if (Objects.nonNull(catchAllChild) && Objects.nonNull(catchAllChild.route)) {
+                bounds[variable * 2] = pos;
+                bounds[variable * 2 + 1] = length;
+                return catchAllChild.route;
+            }
+            return null;
+        }
+
+        private Node findStaticChild(String path, int pos, int length, int hash) {
+            int mask = staticKeys.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                String key = staticKeys[i];
+                if (Objects.isNull(key)) {
+                    return null;
+                }
+                if (key.length() == length && path.regionMatches(pos, key, 0, length)) {
+                    return staticChildren[i];
+                }
+            }
+        }
+    }
+}
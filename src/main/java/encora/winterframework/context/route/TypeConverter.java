@@ -0,0 +1,121 @@
+package encora.winterframework.context.route;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Locale;
+import java.util.Objects;
+
+import encora.winterframework.util.json.ClassMetadata;
+
+/**
+ * Turns the text of a path variable, query parameter or header into the type of a handler parameter
+ * Converters are picked once per parameter, so the conversion itself doesn't check types again.
+ */
+@FunctionalInterface
+public interface TypeConverter {
+
+    /**
+     * @throws IllegalArgumentException If the text is not a valid value of the type
+     */
+    Object convert(String text);
+
+    /**
+     * Strings, primitives and their wrappers, enums, big numbers and java.time values are supported, as well as
+     * any class with a static valueOf(String) or fromString(String) method, or a constructor taking a String
+     *
+     * @param type The type of the parameter
+     * @return The converter for the type
+     * @throws IllegalArgumentException If the type can't be converted from text
+     */
+    static TypeConverter of(Class<?> type) {
+        ClassMetadata metadata = ClassMetadata.of(type);
+        switch (metadata.getKind()) {
+            case STRING:
+            case ANY:
+                return text -> text;
+            case BOOLEAN:
+                return TypeConverter::parseBoolean;
+            case BYTE:
+                return Byte::valueOf;
+            case SHORT:
+                return Short::valueOf;
+            case INT:
+                return Integer::valueOf;
+            case LONG:
+                return Long::valueOf;
+            case FLOAT:
+                return Float::valueOf;
+            case DOUBLE:
+                return Double::valueOf;
+            case CHAR:
+                return TypeConverter::parseChar;
+            case BIG_NUMBER:
+                return metadata::parseBigNumber;
+            case ENUM:
+                return metadata::enumConstant;
+            case TEMPORAL:
+                return metadata::parse;
+            default:
+                return ofFactory(type);
+        }
+    }
+
+    private static Object parseBoolean(String text) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            default:
+                throw new IllegalArgumentException("Expected true or false");
+        }
+    }
+
+    private static Object parseChar(String text) {
+        if (text.length() != 1) {
+            throw new IllegalArgumentException("Expected a single character");
+        }
+        return text.charAt(0);
+    }
+
+    private static TypeConverter ofFactory(Class<?> type) {
+        MethodHandle factory = null;
+        try {
+            for (String name : new String[] { "valueOf", "fromString" }) {
+                Method method = findMethod(type, name);
+                if (Objects.nonNull(method)) {
+                    factory = MethodHandles.publicLookup().unreflect(method);
+                    break;
+                }
+            }
+            if (Objects.isNull(factory)) {
+                factory = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class, String.class));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot convert text into " + type.getName()
+                + ", it needs a static valueOf(String) or fromString(String) method, or a public constructor taking a String", e);
+        }
+        MethodHandle handle = factory.asType(MethodType.methodType(Object.class, String.class));
+        return text -> {
+            try {
+                return (Object) handle.invokeExact(text);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot convert '" + text + "' into " + type.getName(), e);
+            }
+        };
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            Method method = type.getMethod(name, String.class);
+            return Modifier.isStatic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType()) ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package encora.winterframework.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import encora.winterframework.annotation.Autowired;
+import encora.winterframework.annotation.Component;
+import encora.winterframework.annotation.RESTController;
+import encora.winterframework.annotation.RequestMapping;
+import encora.winterframework.context.loader.ComponentIndex;
+
+/**
+ * Generates the {@link ComponentIndex} of the compiled classes
+ * Components are the classes annotated with {@link Component}, or with any annotation that is itself a component.
+ * Incremental builds only compile some of the classes, so the entries of the others are kept from the previous index.
+ */
+@SupportedAnnotationTypes("*")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> entries = new LinkedHashSet<>();
+
+    // Binary names of every class compiled, whose previous entries are replaced
+    private final Set<String> compiled = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            collect(element);
+        }
+        if (roundEnv.processingOver()) {
+            Set<String> index = readPreviousIndex();
+            index.addAll(entries);
+            if (!index.isEmpty()) {
+                writeIndex(index);
+            }
+        }
+        // Other processors may be interested in the same annotations
+        return false;
+    }
+
+    private void collect(Element element) {
+        if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+            return;
+        }
+        TypeElement type = (TypeElement) element;
+        compiled.add(binaryName(type));
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT) && isComponent(type)) {
+            String className = binaryName(type);
+            entries.add(String.join("\t", ComponentIndex.COMPONENT, className));
+            RESTController controller = type.getAnnotation(RESTController.class);
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.FIELD && member.getAnnotation(Autowired.class) != null) {
+                    entries.add(String.join("\t", ComponentIndex.AUTOWIRED, className, member.getSimpleName()));
+                } else if (controller != null && member.getKind() == ElementKind.METHOD
+                    && member.getAnnotation(RequestMapping.class) != null) {
+                    entries.add(routeEntry(className, controller, (ExecutableElement) member));
+                }
+            }
+        }
+        for (Element member : type.getEnclosedElements()) {
+            // Nested classes
+            collect(member);
+        }
+    }
+
+    private String routeEntry(String className, RESTController controller, ExecutableElement method) {
+        RequestMapping mapping = method.getAnnotation(RequestMapping.class);
+        String template = ComponentIndex.template(controller.value(), mapping.path());
+        if (template.contains("\t") || mapping.method().contains("\t")) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Request mappings cannot contain tabs", method);
+        }
+        List<String> parameterTypes = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterTypes.add(typeName(parameter.asType()));
+        }
+        return String.join("\t", ComponentIndex.ROUTE, className, mapping.method(), template, method.getSimpleName(),
+            String.join(",", parameterTypes));
+    }
+
+    private boolean isComponent(TypeElement type) {
+        Set<String> visited = new HashSet<>();
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (isComponentAnnotation((TypeElement) annotation.getAnnotationType().asElement(), visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isComponentAnnotation(TypeElement annotation, Set<String> visited) {
+        String name = annotation.getQualifiedName().toString();
+        if (name.equals(Component.class.getName())) {
+            return true;
+        }
+        if (!visited.add(name)) {
+            return false;
+        }
+        for (AnnotationMirror meta : annotation.getAnnotationMirrors()) {
+            if (isComponentAnnotation((TypeElement) meta.getAnnotationType().asElement(), visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The name of the type as returned by {@link Class#getTypeName()}
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) erased).getComponentType()) + "[]";
+        } else if (erased.getKind() == TypeKind.DECLARED) {
+            return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+        }
+        return erased.toString();
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * @return The entries of the index left by a previous build, without the classes compiled now or deleted since
+     */
+    private Set<String> readPreviousIndex() {
+        Set<String> previous = new LinkedHashSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.LOCATION);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] values = line.split("\t");
+                    if (values.length > 1 && !compiled.contains(values[1]) && exists(values[1])) {
+                        previous.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No previous index, i.e. a clean build
+        }
+        return previous;
+    }
+
+    private boolean exists(String binaryName) {
+        // Binary names of nested classes use '$', which could also be part of a name, so try both
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null
+            || processingEnv.getElementUtils().getTypeElement(binaryName) != null;
+    }
+
+    private void writeIndex(Set<String> index) {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entry : index) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the component index: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package encora.winterframework.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import encora.winterframework.annotation.JsonCodec;
+import encora.winterframework.util.json.ObjectCodec;
+
+/**
+ * Generates an {@link ObjectCodec} for every class annotated with {@link JsonCodec}
+ * The codec writes the same fields as the reflective serializer, in the same order. Fields the codec can't reach
+ * from its package, i.e. private ones, go through a {@link java.lang.invoke.VarHandle}, and the rest are accessed
+ * directly.
+ */
+@SupportedAnnotationTypes("encora.winterframework.annotation.JsonCodec")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    private static final String CODEC = "encora.winterframework.util.json.ObjectCodec";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(JsonCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error("@JsonCodec only applies to classes", element);
+            } else if (isSupported((TypeElement) element)) {
+                generate((TypeElement) element);
+            }
+        }
+        return false;
+    }
+
+    private boolean isSupported(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error("@JsonCodec classes cannot be abstract", type);
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error("@JsonCodec classes cannot be local nor anonymous", type);
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            error("@JsonCodec classes nested in another class must be static", type);
+            return false;
+        }
+        for (Element e = type; e.getKind().isClass(); e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                error("@JsonCodec classes cannot be private, nor nested in a private class", type);
+                return false;
+            }
+        }
+        boolean hasConstructor = false;
+        boolean hasNoArgumentsConstructor = false;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR) {
+                hasConstructor = true;
+                if (((ExecutableElement) member).getParameters().isEmpty() && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                    hasNoArgumentsConstructor = true;
+                }
+            }
+        }
+        if (hasConstructor && !hasNoArgumentsConstructor) {
+            error("@JsonCodec classes need a constructor without arguments that is not private", type);
+            return false;
+        }
+        for (VariableElement field : fields(type)) {
+            if (field.getModifiers().contains(Modifier.FINAL)) {
+                error("Final fields can't be read by the generated codec, make it transient or not final", field);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The serializable fields, starting with the ones declared by the superclasses
+     */
+    private List<VariableElement> fields(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement t = type; t != null && !t.getQualifiedName().contentEquals("java.lang.Object"); t = superclass(t)) {
+            hierarchy.add(0, t);
+        }
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement t : hierarchy) {
+            for (Element member : t.getEnclosedElements()) {
+                Set<Modifier> modifiers = member.getModifiers();
+                if (member.getKind() == ElementKind.FIELD && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                    fields.add((VariableElement) member);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String codecName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + ObjectCodec.SUFFIX;
+        String typeName = erasure(type.asType());
+        List<VariableElement> fields = fields(type);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+            .append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n")
+            .append("public final class ").append(codecName).append(" implements ").append(CODEC).append('<').append(typeName).append("> {\n\n");
+
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+            String name = field.getSimpleName().toString();
+            String declaringClass = erasure(field.getEnclosingElement().asType()) + ".class";
+            source.append("    private static final byte[] NAME_").append(i).append(" = \"").append(i == 0 ? "" : ",")
+                .append("\\\"").append(name).append("\\\":\".getBytes(java.nio.charset.StandardCharsets.UTF_8);\n");
+            if (!isAccessible(field, type)) {
+                source.append("    private static final java.lang.invoke.VarHandle FIELD_").append(i).append(" = ").append(CODEC)
+                    .append(".fieldHandle(").append(declaringClass).append(", \"").append(name).append("\");\n");
+            }
+            if (kindOf(field.asType()) == FieldKind.OTHER) {
+                source.append("    private static final java.lang.reflect.Type TYPE_").append(i).append(" = ").append(CODEC)
+                    .append(".fieldType(").append(declaringClass).append(", \"").append(name).append("\");\n");
+            }
+        }
+
+        source.append("\n    @Override\n")
+            .append("    public void write(").append(typeName).append(" value, encora.winterframework.util.json.JsonSerializer serializer,\n")
+            .append("        encora.winterframework.util.json.JsonWriter writer) throws IllegalAccessException {\n")
+            .append("        writer.writeByte((byte) '{');\n");
+        for (int i = 0; i < fields.size(); i++) {
+            appendWrite(source, fields.get(i), i, isAccessible(fields.get(i), type));
+        }
+        source.append("        writer.writeByte((byte) '}');\n")
+            .append("    }\n");
+
+        // A field hiding another one with the same name is the one read, as in the reflective deserializer
+        Map<String, Integer> readFields = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            readFields.put(fields.get(i).getSimpleName().toString(), i);
+        }
+        source.append("\n    @Override\n")
+            .append("    public ").append(typeName).append(" read(encora.winterframework.util.json.JsonDeserializer deserializer,\n")
+            .append("        encora.winterframework.util.json.JsonReader reader)\n")
+            .append("        throws InstantiationException, IllegalAccessException, java.lang.reflect.InvocationTargetException {\n")
+            .append("        ").append(typeName).append(" instance = new ").append(typeName).append("();\n")
+            .append("        reader.beginObject();\n")
+            .append("        while (reader.hasNext()) {\n")
+            .append("            switch (reader.nextName()) {\n");
+        for (Map.Entry<String, Integer> entry : readFields.entrySet()) {
+            int i = entry.getValue();
+            source.append("                case \"").append(entry.getKey()).append("\":\n");
+            appendRead(source, fields.get(i), i, isAccessible(fields.get(i), type));
+            source.append("                    break;\n");
+        }
+        source.append("                default:\n")
+            .append("                    reader.skipValue();\n")
+            .append("            }\n")
+            .append("        }\n")
+            .append("        reader.endObject();\n")
+            .append("        return instance;\n")
+            .append("    }\n")
+            .append("}\n");
+
+        String qualifiedCodecName = packageName.isEmpty() ? codecName : packageName + '.' + codecName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedCodecName, type).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error("Cannot write the codec of " + typeName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private void appendWrite(StringBuilder source, VariableElement field, int i, boolean accessible) {
+        String get = accessible
+            ? "value." + field.getSimpleName()
+            : cast(field.asType()) + "FIELD_" + i + ".get(value)";
+        source.append("        writer.writeBytes(NAME_").append(i).append(");\n");
+        switch (kindOf(field.asType())) {
+            case LONG:
+                source.append("        writer.writeLong(").append(get).append(");\n");
+                break;
+            case DOUBLE:
+                source.append("        writer.writeDouble(").append(get).append(");\n");
+                break;
+            case FLOAT:
+                source.append("        writer.writeFloat(").append(get).append(");\n");
+                break;
+            case BOOLEAN:
+                source.append("        writer.writeBoolean(").append(get).append(");\n");
+                break;
+            case CHAR:
+                source.append("        writer.writeChar(").append(get).append(");\n");
+                break;
+            case STRING:
+                source.append("        String value").append(i).append(" = ").append(get).append(";\n")
+                    .append("        if (value").append(i).append(" == null) {\n")
+                    .append("            writer.writeNull();\n")
+                    .append("        } else {\n")
+                    .append("            writer.writeString(value").append(i).append(");\n")
+                    .append("        }\n");
+                break;
+            default:
+                source.append("        serializer.write(").append(get).append(");\n");
+        }
+    }
+
+    private void appendRead(StringBuilder source, VariableElement field, int i, boolean accessible) {
+        String value;
+        switch (field.asType().getKind()) {
+            case BYTE:
+                value = "reader.nextByte()";
+                break;
+            case SHORT:
+                value = "reader.nextShort()";
+                break;
+            case INT:
+                value = "reader.nextInt()";
+                break;
+            case LONG:
+                value = "reader.nextLong()";
+                break;
+            case FLOAT:
+                value = "(float) reader.nextDouble()";
+                break;
+            case DOUBLE:
+                value = "reader.nextDouble()";
+                break;
+            case BOOLEAN:
+                value = "reader.nextBoolean()";
+                break;
+            case CHAR:
+                value = "reader.nextChar()";
+                break;
+            default:
+                value = kindOf(field.asType()) == FieldKind.STRING ? "reader.nextString()" : null;
+        }
+        if (value == null) {
+            // Nulls are handled by the deserializer, i.e. an empty Optional
+            String read = "deserializer.read(TYPE_" + i + ")";
+            source.append("                    ").append(set(field, i, accessible, cast(field.asType()) + read)).append('\n');
+            return;
+        }
+        boolean primitive = field.asType().getKind().isPrimitive();
+        source.append("                    if (reader.peek() == encora.winterframework.util.json.JsonToken.NULL) {\n")
+            .append("                        reader.nextNull();\n");
+        if (!primitive) {
+            // Primitives keep their default value
+            source.append("                        ").append(set(field, i, accessible, "null")).append('\n');
+        }
+        source.append("                    } else {\n")
+            .append("                        ").append(set(field, i, accessible, value)).append('\n')
+            .append("                    }\n");
+    }
+
+    private String set(VariableElement field, int i, boolean accessible, String value) {
+        if (accessible) {
+            return "instance." + field.getSimpleName() + " = " + value + ";";
+        }
+        // The value has the type of the field already, a cast would be redundant
+        return "FIELD_" + i + ".set(instance, " + value + ");";
+    }
+
+    /**
+     * @return Whether the generated codec, living in the package of the class, can use the field directly
+     */
+    private boolean isAccessible(VariableElement field, TypeElement type) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC) || packageOf(field).equals(packageOf(type));
+    }
+
+    private PackageElement packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * @return The cast of an Object to the type, empty when it would be redundant
+     */
+    private String cast(TypeMirror type) {
+        String erasure = erasure(type);
+        return erasure.equals(Object.class.getName()) ? "" : "(" + erasure + ") ";
+    }
+
+    private static FieldKind kindOf(TypeMirror type) {
+        switch (type.getKind()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return FieldKind.LONG;
+            case FLOAT:
+                return FieldKind.FLOAT;
+            case DOUBLE:
+                return FieldKind.DOUBLE;
+            case BOOLEAN:
+                return FieldKind.BOOLEAN;
+            case CHAR:
+                return FieldKind.CHAR;
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                return element.getQualifiedName().contentEquals("java.lang.String") ? FieldKind.STRING : FieldKind.OTHER;
+            default:
+                return FieldKind.OTHER;
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * How the generated code writes a field, everything that isn't a primitive or a string goes through the serializer
+     */
+    private enum FieldKind {
+        LONG,
+        FLOAT,
+        DOUBLE,
+        BOOLEAN,
+        CHAR,
+        STRING,
+        OTHER
+    }
+}
@@ -0,0 +1,17 @@
+package encora.winterframework.server;
+
+/**
+ * HTTP engines available to the {@link WinterServer}
+ */
+public enum EngineMode {
+
+    /**
+     * The {@link com.sun.net.httpserver.HttpServer} shipped with the JDK
+     */
+    JDK,
+
+    /**
+     * Selector based engine with one event loop per available processor, keep-alive and pipelining
+     */
+    NIO
+}
@@ -0,0 +1,27 @@
+package encora.winterframework.server;
+
+/**
+ * Strategies available to run the requests received by the {@link WinterServer}
+ */
+public enum ExecutorMode {
+
+    /**
+     * Run every request on the server dispatcher thread (the old behaviour, mostly useful for debugging)
+     */
+    DISPATCHER,
+
+    /**
+     * Bounded pool of platform threads with a bounded queue of pending requests
+     */
+    FIXED,
+
+    /**
+     * Work-stealing fork/join pool with one worker per available processor
+     */
+    WORK_STEALING,
+
+    /**
+     * One virtual thread per request, falls back to {@link #FIXED} when the runtime does not support them
+     */
+    VIRTUAL
+}
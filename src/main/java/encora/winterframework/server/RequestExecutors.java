@@ -0,0 +1,86 @@
+package encora.winterframework.server;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import encora.winterframework.server.admission.AdmissionExecutor;
+import encora.winterframework.server.admission.LoadShedding;
+
+/**
+ * Creates the executor used to run the requests, based on the {@link ExecutorMode} of the configuration
+ */
+public final class RequestExecutors {
+
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    private RequestExecutors() {}
+
+    /**
+     * @param config The server configuration
+     * @return The executor for the requests, or null to run them in the dispatcher thread
+     */
+    public static ExecutorService create(ServerConfig config) {
+        switch (config.getExecutorMode()) {
+            case DISPATCHER:
+                return null;
+            case WORK_STEALING:
+                return admit(Executors.newWorkStealingPool(config.getThreads()), config);
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual != null) {
+                    return admit(virtual, config);
+                }
+                log.warning("Virtual threads are not supported by this runtime, using a fixed pool instead");
+                return newFixedPool(config);
+            case FIXED:
+            default:
+                return newFixedPool(config);
+        }
+    }
+
+    private static ExecutorService newFixedPool(ServerConfig config) {
+        int threads = config.getThreads();
+        // When the queue is full the requests are answered right away with a 503 instead of waiting
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+            new WorkerThreadFactory(), new LoadShedding());
+    }
+
+    /**
+     * These executors queue without a bound, so as many requests as the workers and the queue of a fixed pool would
+     * hold are admitted, and the rest get a 503 as well
+     */
+    private static ExecutorService admit(ExecutorService executor, ServerConfig config) {
+        return new AdmissionExecutor(executor, config.getThreads() + Math.max(1, config.getQueueCapacity()), new LoadShedding());
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // Looked up reflectively so the framework still runs on runtimes older than Java 21
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "winter-worker-" + count.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        }
+    }
+}
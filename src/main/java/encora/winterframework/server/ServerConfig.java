@@ -0,0 +1,268 @@
+package encora.winterframework.server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import encora.winterframework.annotation.WinterBootApplication;
+
+/**
+ * Server settings taken from the {@link WinterBootApplication} attributes
+ * They can be overridden with startup arguments in the form '--winter.<name>=<value>', i.e. '--winter.port=8080'
+ */
+public class ServerConfig {
+
+    private static final String ARG_PREFIX = "--winter.";
+
+    private final Map<String, String> arguments;
+
+    private final int port;
+
+    private final int backlog;
+
+    private final EngineMode engineMode;
+
+    private final ExecutorMode executorMode;
+
+    private final int threads;
+
+    private final int queueCapacity;
+
+    private final int compressionMinSize;
+
+    private final int compressionLevel;
+
+    private final long asyncTimeout;
+
+    private final int maxConcurrency;
+
+    private final boolean adaptiveConcurrency;
+
+    private final int rateLimit;
+
+    private final int rateLimitBurst;
+
+    private final String rateLimitHeader;
+
+    private final int streamFlushSize;
+
+    private final long streamFlushInterval;
+
+    private final int batchMaxRequests;
+
+    private final int batchConcurrency;
+
+    private final int initThreads;
+
+    private final boolean lazyInit;
+
+    private ServerConfig(WinterBootApplication app, Map<String, String> arguments) {
+        this.arguments = arguments;
+        this.port = getInt("port", app.port());
+        this.backlog = getInt("backlog", app.backlog());
+        this.engineMode = getEnum("engine", app.engine());
+        this.executorMode = getEnum("executor", app.executor());
+        this.threads = getInt("threads", app.threads());
+        this.queueCapacity = getInt("queueCapacity", app.queueCapacity());
+        this.compressionMinSize = getInt("compressionMinSize", app.compressionMinSize());
+        this.compressionLevel = getInt("compressionLevel", app.compressionLevel());
+        this.asyncTimeout = getLong("asyncTimeout", app.asyncTimeout());
+        this.maxConcurrency = getInt("maxConcurrency", app.maxConcurrency());
+        this.adaptiveConcurrency = getBoolean("adaptiveConcurrency", app.adaptiveConcurrency());
+        this.rateLimit = getInt("rateLimit", app.rateLimit());
+        this.rateLimitBurst = getInt("rateLimitBurst", app.rateLimitBurst());
+        this.rateLimitHeader = getString("rateLimitHeader", app.rateLimitHeader());
+        this.streamFlushSize = getInt("streamFlushSize", app.streamFlushSize());
+        this.streamFlushInterval = getLong("streamFlushInterval", app.streamFlushInterval());
+        this.batchMaxRequests = getInt("batchMaxRequests", app.batchMaxRequests());
+        this.batchConcurrency = getInt("batchConcurrency", app.batchConcurrency());
+        this.initThreads = getInt("initThreads", app.initThreads());
+        this.lazyInit = getBoolean("lazyInit", app.lazyInit());
+    }
+
+    public static ServerConfig from(WinterBootApplication app, String[] args) {
+        return new ServerConfig(app, parseArguments(args));
+    }
+
+    /**
+     * @return The settings with the default values of {@link WinterBootApplication}
+     */
+    public static ServerConfig defaults() {
+        return from(Defaults.class.getAnnotation(WinterBootApplication.class), null);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public EngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    /**
+     * @return The configured number of threads, or the default for the executor mode
+     */
+    public int getThreads() {
+        if (threads > 0) {
+            return threads;
+        }
+        // Handlers usually block on I/O, so give the pool some room over the number of cores
+        int processors = Runtime.getRuntime().availableProcessors();
+        return executorMode == ExecutorMode.WORK_STEALING ? processors : processors * 2;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public int getRateLimit() {
+        return rateLimit;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public String getRateLimitHeader() {
+        return rateLimitHeader;
+    }
+
+    public int getStreamFlushSize() {
+        return streamFlushSize;
+    }
+
+    public long getStreamFlushInterval() {
+        return streamFlushInterval;
+    }
+
+    public int getBatchMaxRequests() {
+        return batchMaxRequests;
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    public int getInitThreads() {
+        return initThreads;
+    }
+
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
+    /**
+     * @return Clients tracked by every rate limiter before dropping the idle ones
+     */
+    public int getRateLimitClients() {
+        return getInt("rateLimitClients", 100_000);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return arguments.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = arguments.get(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for '" + ARG_PREFIX + name + "': " + value);
+        }
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = arguments.get(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+                return true;
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid value for '" + ARG_PREFIX + name + "': " + value);
+        }
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = arguments.get(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for '" + ARG_PREFIX + name + "': " + value);
+        }
+    }
+
+    /**
+     * @return The constant named by the argument, in any case, or the default value if it's not set
+     */
+    public <E extends Enum<E>> E getEnum(String name, E defaultValue) {
+        String value = arguments.get(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        Class<E> type = defaultValue.getDeclaringClass();
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for '" + ARG_PREFIX + name + "': " + value + ", expected one of "
+                + Arrays.toString(type.getEnumConstants()).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static Map<String, String> parseArguments(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        if (Objects.isNull(args)) {
+            return arguments;
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith(ARG_PREFIX) && separator > ARG_PREFIX.length()) {
+                arguments.put(arg.substring(ARG_PREFIX.length(), separator), arg.substring(separator + 1));
+            }
+        }
+        return arguments;
+    }
+
+    @WinterBootApplication
+    private static final class Defaults {
+    }
+}
@@ -3,15 +3,20 @@ package encora.winterframework.server;
 import java.io.IOException;
 import java.io.InvalidClassException;
 import java.lang.invoke.MethodHandles;
-import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
-import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpHandler;
 
 import encora.winterframework.annotation.WinterBootApplication;
 import encora.winterframework.context.ApplicationContext;
+import encora.winterframework.server.engine.ServerEngine;
+import encora.winterframework.server.handler.BatchHandler;
 import encora.winterframework.server.handler.RESTControllerHandler;
+import encora.winterframework.server.metrics.MetricsHandler;
 
 public class WinterServer {
 
@@ -21,19 +26,23 @@ public class WinterServer {
         if (!mainClass.isAnnotationPresent(WinterBootApplication.class)) {
             throw new InvalidClassException("This is not a main WinterBoot application");
         }
-        int port = 9000;
-        log.info("Server starting on port " + port);
-
         WinterBootApplication mainApp = mainClass.getAnnotation(WinterBootApplication.class);
+        ServerConfig config = ServerConfig.from(mainApp, args);
+        log.info("Server starting on port " + config.getPort() + " using the " + config.getEngineMode() + " engine and "
+            + config.getExecutorMode() + " executor");
+
         String[] packages = mainApp.packages();
         if (Objects.isNull(packages) || packages.length == 0) {
-            ApplicationContext.init(mainClass.getPackageName());
+            ApplicationContext.init(config.getInitThreads(), config.isLazyInit(), mainClass.getPackageName());
         } else {
-            ApplicationContext.init(packages);
+            ApplicationContext.init(config.getInitThreads(), config.isLazyInit(), packages);
         }
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/", ApplicationContext.getBean(RESTControllerHandler.class));
-        server.setExecutor(null);
-        server.start();
+        ExecutorService executor = RequestExecutors.create(config);
+        Map<String, HttpHandler> contexts = new LinkedHashMap<>();
+        RESTControllerHandler handler = new RESTControllerHandler(config, executor);
+        contexts.put("/", handler);
+        contexts.put(BatchHandler.PATH, new BatchHandler(handler, config, executor));
+        contexts.put(MetricsHandler.PATH, new MetricsHandler());
+        ServerEngine.create(config.getEngineMode()).start(config, contexts, executor);
     }
 }
@@ -0,0 +1,78 @@
+package encora.winterframework.server.admission;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the tasks of an executor that queues without a limit of their own, like the work-stealing and virtual
+ * thread ones
+ * Tasks running or waiting take a permit each, and the ones finding none left are shed with {@link LoadShedding}.
+ */
+public final class AdmissionExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    private final Semaphore permits;
+
+    private final LoadShedding shedding;
+
+    /**
+     * @param delegate The executor running the admitted tasks
+     * @param limit    Maximum number of tasks running or waiting at the same time
+     * @param shedding Where the tasks over the limit go
+     */
+    public AdmissionExecutor(ExecutorService delegate, int limit, LoadShedding shedding) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(Math.max(1, limit));
+        this.shedding = shedding;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            shedding.shed(command);
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
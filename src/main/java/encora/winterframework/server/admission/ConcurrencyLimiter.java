@@ -0,0 +1,104 @@
+package encora.winterframework.server.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit of requests in flight for a route
+ * Permits are taken and given back with compare-and-set only. An adaptive limiter moves its limit with AIMD: it
+ * grows by one every 'limit' requests while the latency stays close to the usual one, and shrinks by a tenth when a
+ * request takes much longer or fails, since that means requests are queueing somewhere.
+ */
+public class ConcurrencyLimiter {
+
+    // Fixed point, so the limit can grow by fractions of a request with a single compare-and-set
+    private static final long SCALE = 1_000;
+
+    private static final int MIN_LIMIT = 1;
+
+    // A request taking this many times the usual latency counts as queueing
+    private static final double TOLERANCE = 2.0;
+
+    private static final double BACKOFF = 0.9;
+
+    // Weight of every request in the usual latency, small so a burst of slow requests doesn't become the norm
+    private static final double SMOOTHING = 0.01;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong scaledLimit;
+
+    private final int maxLimit;
+
+    private final boolean adaptive;
+
+    // Average latency of the route in nanoseconds, zero until the first request. Updates may race, and
+    // losing one of them doesn't matter for an average
+    private volatile double usualLatency;
+
+    /**
+     * @param initialLimit Requests allowed at first
+     * @param maxLimit     Requests allowed at most
+     * @param adaptive     Whether to move the limit based on the latency
+     */
+    public ConcurrencyLimiter(int initialLimit, int maxLimit, boolean adaptive) {
+        if (initialLimit < MIN_LIMIT || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits " + initialLimit + " and " + maxLimit);
+        }
+        this.scaledLimit = new AtomicLong(initialLimit * SCALE);
+        this.maxLimit = maxLimit;
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @return Whether the request can go on, in which case {@link #release(long, boolean)} must be called after it
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos How long the request took
+     * @param failed       Whether the request failed or timed out
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        if (adaptive) {
+            adapt(latencyNanos, failed, current);
+        }
+    }
+
+    private void adapt(long latencyNanos, boolean failed, int inFlightBefore) {
+        double usual = usualLatency;
+        usualLatency = usual == 0 ? latencyNanos : usual + (latencyNanos - usual) * SMOOTHING;
+        long limit = scaledLimit.get();
+        long updated;
+        if (failed || (usual > 0 && latencyNanos > usual * TOLERANCE)) {
+            updated = Math.max(MIN_LIMIT * SCALE, (long) (limit * BACKOFF));
+        } else if (inFlightBefore * 2L * SCALE >= limit) {
+            // Only grow while the limit is being used, otherwise it would grow forever on a quiet route
+            updated = Math.min(maxLimit * SCALE, limit + SCALE * SCALE / limit);
+        } else {
+            return;
+        }
+        // If another thread moved the limit meanwhile, its update is as good as this one
+        scaledLimit.compareAndSet(limit, updated);
+    }
+
+    public int getLimit() {
+        return (int) (scaledLimit.get() / SCALE);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,70 @@
+package encora.winterframework.server.admission;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds the requests that don't fit in the queue of the request executor
+ * Rejected requests are handed to a small responder of their own, flagged so the handler answers right away with a
+ * 503 instead of processing them. The thread that received them, like the dispatcher of the server, never waits on
+ * a slow client. Only when the responder is full as well do they run in that thread.
+ */
+public final class LoadShedding implements RejectedExecutionHandler {
+
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static final int RESPONDER_THREADS = 2;
+
+    private static final int RESPONDER_QUEUE_CAPACITY = 1024;
+
+    private final ThreadPoolExecutor responder;
+
+    public LoadShedding() {
+        responder = new ThreadPoolExecutor(RESPONDER_THREADS, RESPONDER_THREADS, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(RESPONDER_QUEUE_CAPACITY), new ResponderThreadFactory(), (r, executor) -> r.run());
+        responder.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        shed(r);
+    }
+
+    /**
+     * Run the task of a request that can't be admitted, so its handler answers with a 503
+     */
+    public void shed(Runnable r) {
+        responder.execute(() -> {
+            SHEDDING.set(Boolean.TRUE);
+            try {
+                r.run();
+            } finally {
+                SHEDDING.set(Boolean.FALSE);
+            }
+        });
+    }
+
+    /**
+     * @return Whether the current request must be rejected because the server is overloaded
+     */
+    public static boolean isShedding() {
+        return SHEDDING.get();
+    }
+
+    private static class ResponderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "winter-shedder-" + count.incrementAndGet());
+            // Only answers requests the server already gave up on, it must not keep the JVM alive
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package encora.winterframework.server.admission;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Token bucket per client, implemented with the generic cell rate algorithm
+ * Every client is a single {@link AtomicLong} holding the time its bucket is full again, so taking a token is one
+ * compare-and-set. A client whose bucket is already full has no state worth keeping, which lets the map drop those
+ * entries whenever it grows over its maximum size.
+ */
+public class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final ConcurrentHashMap<String, AtomicLong> clients = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final long interval;
+
+    private final long tolerance;
+
+    private final int burst;
+
+    private final int maxClients;
+
+    private final String header;
+
+    /**
+     * @param rate       Requests per second allowed to every client
+     * @param burst      Requests a client can make at once, zero or negative uses the rate
+     * @param maxClients Clients tracked before dropping the idle ones
+     * @param header     Header telling the clients apart, null or empty uses the remote address
+     */
+    public RateLimiter(double rate, int burst, int maxClients, String header) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("The rate limit must be positive, not " + rate);
+        }
+        this.interval = Math.max(1, (long) (NANOS_PER_SECOND / rate));
+        this.burst = burst > 0 ? burst : (int) Math.max(1, Math.ceil(rate));
+        this.tolerance = interval * this.burst;
+        this.maxClients = maxClients;
+        this.header = Objects.isNull(header) || header.isEmpty() ? null : header;
+    }
+
+    /**
+     * @return The client of the request, as told apart by this limiter
+     */
+    public String clientOf(HttpExchange req) {
+        if (Objects.nonNull(header)) {
+            String value = req.getRequestHeaders().getFirst(header);
+            if (Objects.nonNull(value)) {
+                return value;
+            }
+        }
+        return Objects.isNull(req.getRemoteAddress()) ? "" : req.getRemoteAddress().getAddress().getHostAddress();
+    }
+
+    /**
+     * Take a token from the bucket of the client
+     *
+     * @return The tokens left if there was one, or minus the nanoseconds until the next one otherwise
+     */
+    public long acquire(String client) {
+        long now = System.nanoTime();
+        AtomicLong bucket = clients.get(client);
+        if (Objects.isNull(bucket)) {
+            bucket = clients.computeIfAbsent(client, c -> new AtomicLong(now));
+            if (clients.size() > maxClients) {
+                evict(now);
+            }
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + interval;
+            long used = next - now;
+            if (used > tolerance) {
+                return -Math.max(1, used - tolerance);
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return (tolerance - used) / interval;
+            }
+        }
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getTrackedClients() {
+        return clients.size();
+    }
+
+    /**
+     * Drop the clients with a full bucket, forgetting them changes nothing. If every client is active, drop some of
+     * them anyway, which only gives them a few extra requests. A tenth of the room is freed, so the sweep doesn't
+     * run again on the next new client.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            clients.values().removeIf(bucket -> bucket.get() - now <= 0);
+            Iterator<AtomicLong> iterator = clients.values().iterator();
+            while (clients.size() > maxClients - maxClients / 10 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
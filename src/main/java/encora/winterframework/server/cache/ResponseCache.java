@@ -0,0 +1,243 @@
+package encora.winterframework.server.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import encora.winterframework.annotation.Cacheable;
+
+/**
+ * Serialized responses of a route, evicted when they expire or when the route goes over its size
+ * Concurrent misses of the same key wait for the first one, so the handler is called once per key.
+ */
+public class ResponseCache {
+
+    // Rough size of the entry, the key and the map node, so tiny responses are not free
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long ttlNanos;
+
+    private final long maxBytes;
+
+    // Access ordered, the first entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    private long usedBytes;
+
+    public ResponseCache(long ttl, TimeUnit unit, long maxBytes) {
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxBytes = maxBytes;
+    }
+
+    public static ResponseCache from(Cacheable cacheable) {
+        if (cacheable.ttl() <= 0 || cacheable.maxBytes() <= 0) {
+            throw new IllegalArgumentException("@Cacheable needs a positive ttl and maxBytes");
+        }
+        return new ResponseCache(cacheable.ttl(), TimeUnit.SECONDS, cacheable.maxBytes());
+    }
+
+    /**
+     * @return The response cached for the key, or null if there's none or it expired
+     */
+    public Entry get(String key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (Objects.isNull(entry)) {
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                entries.remove(key);
+                usedBytes -= entry.size;
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Call the loader unless another thread is already loading the key, in which case its result is used
+     *
+     * @return The loaded response, cached unless it's bigger than the whole cache
+     * @throws Throwable The error thrown by the loader, even if it was called by another thread
+     */
+    public Entry load(String key, Loader loader) throws Throwable {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> pending = loading.putIfAbsent(key, future);
+        if (Objects.nonNull(pending)) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        }
+        try {
+            Entry entry = new Entry(loader.load(), key, System.nanoTime() + ttlNanos);
+            put(key, entry);
+            future.complete(entry);
+            return entry;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * A variant of a cached response, like a compressed one, kept inside the entry so both expire together
+     *
+     * @param name The name of the variant, i.e. the content encoding
+     * @return The variant, created from the loader the first time
+     */
+    public Entry variant(Entry entry, String name, Loader loader) throws Throwable {
+        Entry variant = entry.variants.get(name);
+        if (Objects.nonNull(variant)) {
+            return variant;
+        }
+        variant = new Entry(loader.load(), entry.key + ';' + name, entry.expiresAt);
+        Entry previous = entry.variants.putIfAbsent(name, variant);
+        if (Objects.nonNull(previous)) {
+            return previous;
+        }
+        synchronized (entries) {
+            // Counted along with its entry, unless the entry was evicted in the meantime
+            if (entries.get(entry.key) == entry) {
+                entry.size += variant.size;
+                usedBytes += variant.size;
+                evict();
+            }
+        }
+        return variant;
+    }
+
+    private void put(String key, Entry entry) {
+        if (entry.size > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (Objects.nonNull(previous)) {
+                usedBytes -= previous.size;
+            }
+            usedBytes += entry.size;
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getUsedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @return The serialized response
+         */
+        byte[] load() throws Throwable;
+    }
+
+    /**
+     * A serialized response and its strong entity tag
+     */
+    public static final class Entry {
+
+        private final byte[] body;
+
+        private final String key;
+
+        private final String etag;
+
+        private final long expiresAt;
+
+        // Other representations of the same response, by name
+        private final ConcurrentHashMap<String, Entry> variants = new ConcurrentHashMap<>();
+
+        // Includes the variants, only changed while holding the lock of the entries
+        private long size;
+
+        Entry(byte[] body, String key, long expiresAt) {
+            this.body = body;
+            this.key = key;
+            this.etag = etag(body);
+            this.expiresAt = expiresAt;
+            this.size = body.length + key.length() * 2L + ENTRY_OVERHEAD;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        /**
+         * @param ifNoneMatch The If-None-Match header of the request, may be null
+         * @return Whether the client already has this response
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (Objects.isNull(ifNoneMatch)) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                // If-None-Match uses the weak comparison
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String etag(byte[] body) {
+            byte[] digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256").digest(body);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            // Half of the digest is plenty to tell the versions of a response apart
+            char[] hex = new char[34];
+            hex[0] = '"';
+            for (int i = 0; i < 16; i++) {
+                hex[1 + i * 2] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+                hex[2 + i * 2] = Character.forDigit(digest[i] & 0xF, 16);
+            }
+            hex[33] = '"';
+            return new String(hex);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package encora.winterframework.server.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import encora.winterframework.util.BufferedOutput;
+import encora.winterframework.util.cbor.CborDeserializer;
+import encora.winterframework.util.cbor.CborReader;
+import encora.winterframework.util.cbor.CborSerializer;
+import encora.winterframework.util.cbor.CborWriter;
+
+/**
+ * CBOR (RFC 8949) bodies, smaller and cheaper to write and parse than JSON for the calls between services
+ */
+public class CborMediaCodec implements MediaCodec {
+
+    public static final String MEDIA_TYPE = "application/cbor";
+
+    @Override
+    public String getMediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public CborWriter newOutput(OutputStream out, byte[] buffer) {
+        return new CborWriter(out, buffer);
+    }
+
+    @Override
+    public CborWriter newOutput(int initialCapacity) {
+        return new CborWriter(initialCapacity);
+    }
+
+    @Override
+    public void write(Object value, BufferedOutput output) throws IllegalAccessException {
+        new CborSerializer((CborWriter) output, CborReader.MAX_DEPTH).write(value);
+    }
+
+    @Override
+    public Object read(InputStream in, Type type) throws ReflectiveOperationException {
+        CborReader reader = new CborReader(in);
+        Object value = new CborDeserializer(reader).read(type);
+        if (!reader.isAtEnd()) {
+            throw new IllegalArgumentException("Unexpected content after the CBOR value");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,55 @@
+package encora.winterframework.server.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import encora.winterframework.util.BufferedOutput;
+import encora.winterframework.util.JSONParser;
+import encora.winterframework.util.json.JsonDeserializer;
+import encora.winterframework.util.json.JsonReader;
+import encora.winterframework.util.json.JsonToken;
+import encora.winterframework.util.json.JsonWriter;
+
+/**
+ * The default format, used whenever the client doesn't ask for another one
+ */
+public class JsonMediaCodec implements MediaCodec {
+
+    public static final String MEDIA_TYPE = "application/json";
+
+    @Override
+    public String getMediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json; charset=utf-8";
+    }
+
+    @Override
+    public JsonWriter newOutput(OutputStream out, byte[] buffer) {
+        return new JsonWriter(out, buffer);
+    }
+
+    @Override
+    public JsonWriter newOutput(int initialCapacity) {
+        return new JsonWriter(initialCapacity);
+    }
+
+    @Override
+    public void write(Object value, BufferedOutput output) throws IllegalAccessException {
+        JSONParser.toJSON(value, (JsonWriter) output);
+    }
+
+    @Override
+    public Object read(InputStream in, Type type) throws ReflectiveOperationException {
+        JsonReader reader = new JsonReader(in);
+        Object value = new JsonDeserializer(reader).read(type);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IllegalArgumentException("Unexpected content after the JSON value");
+        }
+        return value;
+    }
+}
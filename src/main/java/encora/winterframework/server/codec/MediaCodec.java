@@ -0,0 +1,49 @@
+package encora.winterframework.server.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import encora.winterframework.util.BufferedOutput;
+
+/**
+ * Wire format of the request and response bodies, picked from the Accept and Content-Type headers
+ * Implementations other than the built-in ones are found with {@link java.util.ServiceLoader}, they must be
+ * thread safe since a single instance serves every request.
+ */
+public interface MediaCodec {
+
+    /**
+     * @return The media type matched against the Accept and Content-Type headers, i.e. application/cbor
+     */
+    String getMediaType();
+
+    /**
+     * @return The value of the Content-Type header of the responses
+     */
+    default String getContentType() {
+        return getMediaType();
+    }
+
+    /**
+     * @return An output flushing into the stream every time the buffer gets full
+     */
+    BufferedOutput newOutput(OutputStream out, byte[] buffer);
+
+    /**
+     * @return An output keeping the whole body in memory
+     */
+    BufferedOutput newOutput(int initialCapacity);
+
+    /**
+     * Write the value into an output created by this codec
+     */
+    void write(Object value, BufferedOutput output) throws IllegalAccessException;
+
+    /**
+     * Read a whole body, the stream is not closed
+     *
+     * @param type The type of the value, with the type arguments of its collections and maps
+     */
+    Object read(InputStream in, Type type) throws ReflectiveOperationException;
+}
@@ -0,0 +1,163 @@
+package encora.winterframework.server.codec;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * The codecs of the request and response bodies, JSON first so it wins the ties
+ */
+public class MediaCodecs {
+
+    // Do not use uppercase since it's not a constant
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    private final List<MediaCodec> codecs;
+
+    private final MediaCodec defaultCodec;
+
+    /**
+     * @param codecs The supported codecs, the first one is the default
+     */
+    public MediaCodecs(List<MediaCodec> codecs) {
+        if (codecs.isEmpty()) {
+            throw new IllegalArgumentException("At least one codec is needed");
+        }
+        this.codecs = Collections.unmodifiableList(new ArrayList<>(codecs));
+        this.defaultCodec = codecs.get(0);
+    }
+
+    /**
+     * @return JSON, CBOR and the codecs registered as services
+     */
+    public static MediaCodecs load() {
+        List<MediaCodec> codecs = new ArrayList<>();
+        codecs.add(new JsonMediaCodec());
+        codecs.add(new CborMediaCodec());
+        try {
+            for (MediaCodec codec : ServiceLoader.load(MediaCodec.class)) {
+                codecs.add(codec);
+            }
+        } catch (ServiceConfigurationError e) {
+            log.log(Level.WARNING, "Cannot load the registered media codecs", e);
+        }
+        return new MediaCodecs(codecs);
+    }
+
+    public List<MediaCodec> getCodecs() {
+        return codecs;
+    }
+
+    /**
+     * @return The default codec, JSON unless the list was built otherwise
+     */
+    public MediaCodec getDefault() {
+        return defaultCodec;
+    }
+
+    /**
+     * @return The codec of the Content-Type, or null if it's not supported
+     */
+    public MediaCodec forContentType(String contentType) {
+        if (Objects.isNull(contentType)) {
+            return null;
+        }
+        String mediaType = mediaType(contentType);
+        for (MediaCodec codec : codecs) {
+            if (codec.getMediaType().equals(mediaType)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    public MediaCodec negotiate(HttpExchange req) {
+        return negotiate(req.getRequestHeaders().getFirst("Accept"), req.getRequestHeaders().getFirst("Content-Type"));
+    }
+
+    /**
+     * Pick the codec with the highest quality in the Accept header
+     * Ties, wildcards and a missing header go to the codec of the request body, so clients sending CBOR get CBOR
+     * back, and then to JSON. Clients only accepting unsupported types get JSON as well, instead of a 406.
+     *
+     * @param accept      The Accept header of the request, may be null
+     * @param contentType The Content-Type header of the request, may be null
+     * @return The codec of the response, never null
+     */
+    public MediaCodec negotiate(String accept, String contentType) {
+        MediaCodec requested = forContentType(contentType);
+        MediaCodec preferred = Objects.isNull(requested) ? defaultCodec : requested;
+        if (Objects.isNull(accept) || accept.isEmpty()) {
+            return preferred;
+        }
+        MediaCodec best = null;
+        double bestQuality = 0;
+        for (MediaCodec codec : codecs) {
+            double quality = quality(accept, codec.getMediaType());
+            if (quality > bestQuality || (quality == bestQuality && quality > 0 && codec == preferred)) {
+                best = codec;
+                bestQuality = quality;
+            }
+        }
+        return Objects.isNull(best) ? defaultCodec : best;
+    }
+
+    /**
+     * The most specific media range of the header decides, i.e. application/cbor;q=0 beats *&#47;*
+     *
+     * @return The quality of the media type, zero if it's not acceptable
+     */
+    private static double quality(String accept, String mediaType) {
+        int slash = mediaType.indexOf('/');
+        String anySubtype = mediaType.substring(0, slash + 1) + '*';
+        double quality = 0;
+        int specificity = -1;
+        for (String range : accept.split(",")) {
+            int parameters = range.indexOf(';');
+            String name = mediaType(range);
+            int rangeSpecificity;
+            if (name.equals(mediaType)) {
+                rangeSpecificity = 2;
+            } else if (name.equals(anySubtype)) {
+                rangeSpecificity = 1;
+            } else if (name.equals("*/*")) {
+                rangeSpecificity = 0;
+            } else {
+                continue;
+            }
+            if (rangeSpecificity > specificity) {
+                specificity = rangeSpecificity;
+                quality = parameters < 0 ? 1 : quality(range.substring(parameters + 1));
+            }
+        }
+        return quality;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String mediaType(String value) {
+        int parameters = value.indexOf(';');
+        return (parameters < 0 ? value : value.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+    }
+}
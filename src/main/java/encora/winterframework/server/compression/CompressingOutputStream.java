@@ -0,0 +1,76 @@
+package encora.winterframework.server.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import encora.winterframework.util.DeflaterPool;
+
+/**
+ * Compresses into the underlying stream with a pooled deflater, which goes back to the pool on close
+ * The gzip header and trailer are written here, since {@link java.util.zip.GZIPOutputStream} can't take a deflater.
+ */
+class CompressingOutputStream extends DeflaterOutputStream {
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final DeflaterPool pool;
+
+    // Only computed for gzip
+    private final CRC32 crc;
+
+    private boolean closed;
+
+    CompressingOutputStream(OutputStream out, DeflaterPool pool, boolean gzip, int bufferSize) throws IOException {
+        // Flushing pushes out everything written so far, so streamed responses reach the client as they go
+        super(out, pool.acquire(), bufferSize, true);
+        this.pool = pool;
+        this.crc = gzip ? new CRC32() : null;
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (def.finished()) {
+            return;
+        }
+        super.finish();
+        if (crc != null) {
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            pool.release(def);
+        }
+    }
+
+    // The gzip trailer is little endian
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+        out.write((value >> 16) & 0xFF);
+        out.write((value >> 24) & 0xFF);
+    }
+}
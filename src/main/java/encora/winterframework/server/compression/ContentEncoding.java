@@ -0,0 +1,78 @@
+package encora.winterframework.server.compression;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Compressed encodings of a response body
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return The value of the Content-Encoding header
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Pick the encoding with the highest quality in the Accept-Encoding header, gzip wins the ties
+     *
+     * @param acceptEncoding The Accept-Encoding header of the request, may be null
+     * @return The accepted encoding, or null if the client only accepts the identity
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (Objects.isNull(acceptEncoding)) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            int parameters = coding.indexOf(';');
+            String name = (parameters < 0 ? coding : coding.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+            double quality = parameters < 0 ? 1 : quality(coding.substring(parameters + 1));
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("deflate")) {
+                deflate = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        // A wildcard only applies to the codings that are not listed
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,83 @@
+package encora.winterframework.server.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.util.DeflaterPool;
+
+/**
+ * Compression of the response bodies for the clients accepting it
+ */
+public class ResponseCompression {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final int minSize;
+
+    private final int level;
+
+    private final DeflaterPool gzipDeflaters;
+
+    private final DeflaterPool deflateDeflaters;
+
+    /**
+     * @param minSize   Smallest body worth compressing, in bytes
+     * @param level     Compression level from 1 to 9, zero disables the compression
+     * @param maxPooled Maximum number of idle deflaters kept for each encoding
+     */
+    public ResponseCompression(int minSize, int level, int maxPooled) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9, not " + level);
+        }
+        this.minSize = minSize;
+        this.level = level;
+        this.gzipDeflaters = new DeflaterPool(level, true, maxPooled);
+        this.deflateDeflaters = new DeflaterPool(level, false, maxPooled);
+    }
+
+    public static ResponseCompression from(ServerConfig config) {
+        return new ResponseCompression(config.getCompressionMinSize(), config.getCompressionLevel(), config.getThreads());
+    }
+
+    public boolean isEnabled() {
+        return level > 0;
+    }
+
+    /**
+     * @return The encoding accepted by the client, or null if the response must not be compressed
+     */
+    public ContentEncoding negotiate(HttpExchange req) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return ContentEncoding.negotiate(req.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    public boolean shouldCompress(long size) {
+        return size >= minSize;
+    }
+
+    /**
+     * @return A stream compressing into the given one, closing it finishes the compressed body and closes both
+     */
+    public OutputStream open(OutputStream out, ContentEncoding encoding) throws IOException {
+        if (encoding == ContentEncoding.GZIP) {
+            return new CompressingOutputStream(out, gzipDeflaters, true, BUFFER_SIZE);
+        }
+        return new CompressingOutputStream(out, deflateDeflaters, false, BUFFER_SIZE);
+    }
+
+    public byte[] compress(byte[] body, ContentEncoding encoding) throws IOException {
+        Objects.requireNonNull(encoding);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream os = open(compressed, encoding)) {
+            os.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
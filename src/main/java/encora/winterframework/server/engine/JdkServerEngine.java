@@ -0,0 +1,34 @@
+package encora.winterframework.server.engine;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import encora.winterframework.server.ServerConfig;
+
+/**
+ * Engine backed by the {@link HttpServer} of the JDK
+ */
+public class JdkServerEngine implements ServerEngine {
+
+    private HttpServer server;
+
+    @Override
+    public void start(ServerConfig config, Map<String, HttpHandler> contexts, Executor executor) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(config.getPort()), Math.max(0, config.getBacklog()));
+        contexts.forEach(server::createContext);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
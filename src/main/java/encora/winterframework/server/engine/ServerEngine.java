@@ -0,0 +1,40 @@
+package encora.winterframework.server.engine;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import encora.winterframework.server.EngineMode;
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.server.engine.nio.NioServerEngine;
+
+/**
+ * Accepts the connections and turns the requests into {@link com.sun.net.httpserver.HttpExchange}s for the handlers
+ * Handlers are written against the exchange only, so they don't change with the engine.
+ */
+public interface ServerEngine {
+
+    /**
+     * @param config   The server configuration
+     * @param contexts Handlers by path prefix, the longest prefix matching the path handles the request
+     * @param executor Runs the handlers, null runs them in the engine threads
+     */
+    void start(ServerConfig config, Map<String, HttpHandler> contexts, Executor executor) throws IOException;
+
+    /**
+     * Stop accepting requests and close the open connections
+     */
+    void stop();
+
+    static ServerEngine create(EngineMode mode) {
+        switch (mode) {
+            case NIO:
+                return new NioServerEngine();
+            case JDK:
+            default:
+                return new JdkServerEngine();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package encora.winterframework.server.engine.nio;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread with its own selector, reading the requests of the connections assigned to it
+ * The first loop also accepts the new connections and hands them to the loops in turns.
+ */
+final class EventLoop implements Runnable {
+
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    private static final long IDLE_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final NioServerEngine engine;
+
+    private final Selector selector;
+
+    private final Thread thread;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final Set<NioConnection> connections = new HashSet<>();
+
+    private EventLoop[] loops;
+
+    private int nextLoop;
+
+    private volatile boolean running = true;
+
+    EventLoop(NioServerEngine engine, int index) throws IOException {
+        this.engine = engine;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "winter-nio-" + index);
+        this.thread.setDaemon(false);
+    }
+
+    NioServerEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Accept the connections of the server channel in this loop, spreading them over the given loops
+     */
+    void accept(ServerSocketChannel server, EventLoop[] loops) throws IOException {
+        this.loops = loops;
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Run the task in the loop thread
+     */
+    void execute(Runnable task) {
+        tasks.offer(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * @return Whether the caller runs in the loop thread
+     */
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void remove(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastIdleCheck = System.nanoTime();
+        try {
+            while (running) {
+                // Tasks queued by the loop itself don't wake up the selector
+                if (tasks.isEmpty()) {
+                    selector.select(1000);
+                } else {
+                    selector.selectNow();
+                }
+                runTasks();
+                Set<SelectionKey> selected = selector.selectedKeys();
+                for (SelectionKey key : selected) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptAll((ServerSocketChannel) key.channel());
+                    } else {
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (key.isWritable()) {
+                            connection.onWritable();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                    }
+                }
+                selected.clear();
+                long now = System.nanoTime();
+                if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+                    lastIdleCheck = now;
+                    closeIdle(now);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.log(Level.SEVERE, "Event loop " + thread.getName() + " failed", e);
+        } finally {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.log(Level.FINE, "Error closing the selector", e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while (Objects.nonNull(task = tasks.poll())) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Error running a task in " + thread.getName(), e);
+            }
+        }
+    }
+
+    private void acceptAll(ServerSocketChannel server) {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Error accepting a connection", e);
+                return;
+            }
+            if (Objects.isNull(channel)) {
+                return;
+            }
+            EventLoop target = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            target.execute(() -> target.register(channel));
+        }
+    }
+
+    private void register(SocketChannel channel) {
+        NioConnection connection = new NioConnection(this, channel);
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            connection.register(selector);
+            connections.add(connection);
+        } catch (IOException e) {
+            log.log(Level.FINE, "Error registering a connection", e);
+            connection.close();
+        }
+    }
+
+    private void closeIdle(long now) {
+        long timeout = engine.getIdleTimeout();
+        Iterator<NioConnection> iterator = new ArrayList<>(connections).iterator();
+        while (iterator.hasNext()) {
+            iterator.next().closeIfIdle(now, timeout);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package encora.winterframework.server.engine.nio;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Value of the Date header, formatted once per second
+ */
+final class HttpDate {
+
+    private static volatile Cached cached = new Cached(0, "");
+
+    private HttpDate() {}
+
+    static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        Cached current = cached;
+        if (current.second != second) {
+            current = new Cached(second, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochSecond(second).atOffset(ZoneOffset.UTC)));
+            cached = current;
+        }
+        return current.value;
+    }
+
+    private static final class Cached {
+
+        private final long second;
+
+        private final String value;
+
+        private Cached(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
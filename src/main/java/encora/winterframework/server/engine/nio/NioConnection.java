@@ -0,0 +1,356 @@
+package encora.winterframework.server.engine.nio;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * A client connection, owned by one event loop
+ * Reading and parsing happen in the loop thread. Requests are handled one at a time, so the responses of pipelined
+ * requests go out in order, while the next ones wait in the read buffer. Responses are written by the thread running
+ * the handler, which waits on a spare selector when the socket can't take more bytes.
+ * <p>
+ * The loop never waits on the socket, the responses it writes itself, like errors and the 503 of the requests shed
+ * by the executor, are written as far as the socket takes them and the rest when it's writable again.
+ */
+final class NioConnection {
+
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    // Selectors used to wait until a socket is writable, shared by all the connections
+    private static final ConcurrentLinkedQueue<Selector> WRITE_SELECTORS = new ConcurrentLinkedQueue<>();
+
+    private final EventLoop loop;
+
+    private final SocketChannel channel;
+
+    private final RequestParser parser;
+
+    private final Object writeLock = new Object();
+
+    private SelectionKey key;
+
+    // Only holds a buffer while there are unparsed bytes
+    private ByteBuffer readBuffer;
+
+    // Bytes written by the loop that the socket didn't take yet, the next request waits for them
+    private ByteBuffer pending;
+
+    private boolean closing;
+
+    private boolean busy;
+
+    private boolean inputClosed;
+
+    private boolean closed;
+
+    private long lastActive = System.nanoTime();
+
+    NioConnection(EventLoop loop, SocketChannel channel) {
+        this.loop = loop;
+        this.channel = channel;
+        this.parser = new RequestParser(loop.getEngine().getMaxBodySize());
+    }
+
+    void register(Selector selector) throws IOException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    void onReadable() {
+        if (Objects.isNull(readBuffer)) {
+            readBuffer = acquireBuffer();
+        }
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            inputClosed = true;
+            if (!busy) {
+                closeWhenWritten();
+                return;
+            }
+        } else {
+            lastActive = System.nanoTime();
+        }
+        process();
+    }
+
+    /**
+     * Parse the buffered bytes and dispatch the next request, unless one is being handled
+     */
+    private void process() {
+        while (!busy && Objects.isNull(pending) && Objects.nonNull(readBuffer) && !closed) {
+            RequestParser.Request request;
+            readBuffer.flip();
+            try {
+                request = parser.parse(readBuffer);
+            } catch (RequestParser.BadRequestException e) {
+                readBuffer.compact();
+                sendErrorAndClose(e.status, e.getMessage());
+                return;
+            }
+            readBuffer.compact();
+            if (Objects.isNull(request)) {
+                if (parser.takeExpectContinue()) {
+                    try {
+                        write(ByteBuffer.wrap(CONTINUE));
+                    } catch (IOException e) {
+                        close();
+                        return;
+                    }
+                }
+                break;
+            }
+            dispatch(request);
+        }
+        if (closed || closing) {
+            return;
+        }
+        if (Objects.nonNull(readBuffer) && readBuffer.position() == 0 && parser.isIdle()) {
+            releaseBuffer(readBuffer);
+            readBuffer = null;
+        }
+        // Stop reading while the buffer is full, the client waits until the pending requests are handled
+        boolean reading = !inputClosed && (Objects.isNull(readBuffer) || readBuffer.hasRemaining());
+        if (key.isValid()) {
+            key.interestOps((reading ? SelectionKey.OP_READ : 0) | (Objects.nonNull(pending) ? SelectionKey.OP_WRITE : 0));
+        }
+    }
+
+    /**
+     * Send the bytes the loop couldn't write before, then go on with the next request
+     */
+    void onWritable() {
+        try {
+            channel.write(pending);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (pending.hasRemaining()) {
+            return;
+        }
+        pending = null;
+        lastActive = System.nanoTime();
+        if (closing || (inputClosed && !busy)) {
+            close();
+            return;
+        }
+        process();
+    }
+
+    private void dispatch(RequestParser.Request request) {
+        busy = true;
+        NioHttpExchange exchange = new NioHttpExchange(this, request);
+        HttpHandler handler = loop.getEngine().findHandler(request.uri.getPath());
+        Runnable task = () -> {
+            try {
+                handler.handle(exchange);
+            } catch (IOException e) {
+                // Usually the client going away in the middle of the response
+                log.log(Level.FINE, "Cannot answer " + request.method + " " + request.uri, e);
+                exchange.abort();
+            } catch (Throwable e) {
+                log.log(Level.WARNING, "Error handling " + request.method + " " + request.uri, e);
+                exchange.abort();
+            }
+        };
+        try {
+            loop.getEngine().execute(task);
+        } catch (RejectedExecutionException e) {
+            busy = false;
+            sendErrorAndClose(503, "Service Unavailable");
+        }
+    }
+
+    /**
+     * Called by the exchange once the response is complete, from any thread
+     *
+     * @param reuse Whether the connection can take the next request
+     */
+    void exchangeDone(boolean reuse) {
+        loop.execute(() -> {
+            busy = false;
+            lastActive = System.nanoTime();
+            if (!reuse) {
+                closeWhenWritten();
+                return;
+            }
+            process();
+            if (inputClosed && !busy) {
+                closeWhenWritten();
+            }
+        });
+    }
+
+    /**
+     * Write all the bytes, waiting while the socket buffer is full
+     */
+    void write(ByteBuffer... buffers) throws IOException {
+        if (loop.inLoop() && !loop.getEngine().runsHandlersInLoop()) {
+            writeLater(buffers);
+            return;
+        }
+        synchronized (writeLock) {
+            while (hasRemaining(buffers)) {
+                if (channel.write(buffers) == 0 && hasRemaining(buffers)) {
+                    awaitWritable();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write what the socket takes right away, and keep the rest until it's writable
+     */
+    private void writeLater(ByteBuffer[] buffers) throws IOException {
+        if (Objects.isNull(pending)) {
+            channel.write(buffers);
+            if (!hasRemaining(buffers)) {
+                return;
+            }
+        }
+        int size = Objects.isNull(pending) ? 0 : pending.remaining();
+        for (ByteBuffer buffer : buffers) {
+            size += buffer.remaining();
+        }
+        // The caller reuses its buffers, so the bytes are copied
+        ByteBuffer copy = ByteBuffer.allocate(size);
+        if (Objects.nonNull(pending)) {
+            copy.put(pending);
+        }
+        for (ByteBuffer buffer : buffers) {
+            copy.put(buffer);
+        }
+        copy.flip();
+        pending = copy;
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void awaitWritable() throws IOException {
+        Selector selector = WRITE_SELECTORS.poll();
+        if (Objects.isNull(selector)) {
+            selector = Selector.open();
+        }
+        SelectionKey writeKey = channel.register(selector, SelectionKey.OP_WRITE);
+        try {
+            if (selector.select(loop.getEngine().getWriteTimeout()) == 0) {
+                throw new IOException("Timed out writing to " + getRemoteAddress());
+            }
+        } finally {
+            writeKey.cancel();
+            selector.selectNow();
+            WRITE_SELECTORS.offer(selector);
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendErrorAndClose(int status, String reason) {
+        byte[] body = reason.getBytes(StandardCharsets.ISO_8859_1);
+        String head = "HTTP/1.1 " + status + " " + NioHttpExchange.reasonPhrase(status) + "\r\n"
+            + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+        try {
+            write(ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)), ByteBuffer.wrap(body));
+        } catch (IOException e) {
+            log.log(Level.FINE, "Cannot send the error to " + getRemoteAddress(), e);
+        }
+        closeWhenWritten();
+    }
+
+    /**
+     * Close the connection once the loop wrote all its pending bytes
+     */
+    private void closeWhenWritten() {
+        if (Objects.isNull(pending)) {
+            close();
+        } else {
+            closing = true;
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the connection was idle for longer than the timeout, in which case it's closed
+     */
+    boolean closeIfIdle(long now, long timeoutNanos) {
+        if (busy || now - lastActive < timeoutNanos) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (Objects.nonNull(key)) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.log(Level.FINE, "Error closing a connection", e);
+        }
+        if (Objects.nonNull(readBuffer)) {
+            releaseBuffer(readBuffer);
+            readBuffer = null;
+        }
+        loop.remove(this);
+    }
+
+    ByteBuffer acquireBuffer() {
+        return loop.getEngine().getBuffers().acquire();
+    }
+
+    void releaseBuffer(ByteBuffer buffer) {
+        loop.getEngine().getBuffers().release(buffer);
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        try {
+            return (InetSocketAddress) channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package encora.winterframework.server.engine.nio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * Exchange of a request received by the {@link NioServerEngine}
+ * The response head is kept in a pooled direct buffer and sent along with the first bytes of the body. Bodies
+ * bigger than the buffer are written straight from the caller's array.
+ */
+final class NioHttpExchange extends HttpExchange {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+    // Room for the size of a chunk, padded with zeros, and its line break
+    private static final int CHUNK_HEADER_SIZE = 8;
+
+    private final NioConnection connection;
+
+    private final RequestParser.Request request;
+
+    private final Headers responseHeaders = new Headers();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private InputStream requestBody;
+
+    private OutputStream responseBody = new ResponseBody();
+
+    private ResponseStream stream;
+
+    private int responseCode = -1;
+
+    private boolean keepAlive;
+
+    private boolean closed;
+
+    // Set once a write fails, the buffers may be half sent so nothing else can be written
+    private boolean broken;
+
+    NioHttpExchange(NioConnection connection, RequestParser.Request request) {
+        this.connection = connection;
+        this.request = request;
+        this.requestBody = new ByteArrayInputStream(request.body);
+        this.keepAlive = request.keepAlive;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return request.headers;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return request.uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return request.method;
+    }
+
+    /**
+     * @return Always null, this engine has no contexts of its own
+     */
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean complete = false;
+        try {
+            if (Objects.nonNull(stream) && !broken) {
+                stream.finish();
+                complete = true;
+            }
+        } catch (IOException e) {
+            complete = false;
+        } finally {
+            if (Objects.nonNull(stream)) {
+                stream.release();
+            }
+            connection.exchangeDone(complete && keepAlive);
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode >= 0) {
+            throw new IOException("The response headers were already sent");
+        }
+        responseCode = rCode;
+        boolean http10 = !"HTTP/1.1".equals(request.protocol);
+        boolean noBody = rCode < 200 || rCode == 204 || rCode == 304 || "HEAD".equals(request.method);
+        StringBuilder head = new StringBuilder(256)
+            .append("HTTP/1.1 ").append(rCode).append(' ').append(reasonPhrase(rCode)).append("\r\n");
+        if (!responseHeaders.containsKey("Date")) {
+            head.append("Date: ").append(HttpDate.now()).append("\r\n");
+        }
+        if (noBody) {
+            stream = new FixedLengthStream(0);
+        } else if (responseLength > 0) {
+            head.append("Content-Length: ").append(responseLength).append("\r\n");
+            stream = new FixedLengthStream(responseLength);
+        } else if (responseLength == 0 && http10) {
+            // HTTP/1.0 clients can't decode chunks, the body ends when the connection is closed
+            keepAlive = false;
+            stream = new CloseDelimitedStream();
+        } else if (responseLength == 0) {
+            head.append("Transfer-Encoding: chunked\r\n");
+            stream = new ChunkedStream();
+        } else {
+            head.append("Content-Length: 0\r\n");
+            stream = new FixedLengthStream(0);
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (http10) {
+            // Persistent connections are an extension in HTTP/1.0, the client only reuses them when told so
+            head.append("Connection: keep-alive\r\n");
+        }
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        stream.start(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return request.protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (Objects.nonNull(i)) {
+            requestBody = i;
+        }
+        if (Objects.nonNull(o)) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * Drop the connection without completing the response, used when the handler fails
+     */
+    void abort() {
+        keepAlive = false;
+        if (!closed) {
+            closed = true;
+            if (Objects.nonNull(stream)) {
+                stream.release();
+            }
+            connection.exchangeDone(false);
+        }
+    }
+
+    static String reasonPhrase(int code) {
+        switch (code) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 201: return "Created";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 301: return "Moved Permanently";
+            case 302: return "Found";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            case 504: return "Gateway Timeout";
+            default: return "Status";
+        }
+    }
+
+    /**
+     * What the handlers get as response body, it works once the headers are sent and closing it ends the exchange
+     */
+    private final class ResponseBody extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (Objects.isNull(stream)) {
+                throw new IOException("The response headers must be sent before the body");
+            }
+            if (closed) {
+                throw new IOException("The exchange is closed");
+            }
+            if (broken) {
+                throw new IOException("A previous write failed");
+            }
+            try {
+                stream.write(b, off, len);
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (Objects.nonNull(stream) && !closed && !broken) {
+                try {
+                    stream.flush();
+                } catch (IOException e) {
+                    broken = true;
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            NioHttpExchange.this.close();
+        }
+    }
+
+    /**
+     * Body of the response, buffered in a pooled direct buffer that starts with the response head
+     */
+    private abstract class ResponseStream {
+
+        ByteBuffer out;
+
+        void start(byte[] head) throws IOException {
+            out = connection.acquireBuffer();
+            if (head.length > out.capacity() / 2) {
+                connection.write(ByteBuffer.wrap(head));
+            } else {
+                out.put(head);
+            }
+        }
+
+        abstract void write(byte[] b, int off, int len) throws IOException;
+
+        abstract void flush() throws IOException;
+
+        abstract void finish() throws IOException;
+
+        void release() {
+            if (Objects.nonNull(out)) {
+                connection.releaseBuffer(out);
+                out = null;
+            }
+        }
+    }
+
+    private class FixedLengthStream extends ResponseStream {
+
+        private long remaining;
+
+        FixedLengthStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        void write(byte[] b, int off, int len) throws IOException {
+            if (len > remaining) {
+                throw new IOException("Too many bytes for the declared Content-Length");
+            }
+            remaining -= len;
+            if (len <= out.remaining()) {
+                out.put(b, off, len);
+                return;
+            }
+            // Send whatever is buffered along with the caller's bytes, without copying them
+            out.flip();
+            connection.write(out, ByteBuffer.wrap(b, off, len));
+            out.clear();
+        }
+
+        @Override
+        void flush() throws IOException {
+            if (out.position() > 0) {
+                out.flip();
+                connection.write(out);
+                out.clear();
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            flush();
+            if (remaining > 0) {
+                throw new IOException("Fewer bytes than the declared Content-Length");
+            }
+        }
+    }
+
+    /**
+     * Body of unknown length for HTTP/1.0 clients, which ends when the connection is closed
+     */
+    private final class CloseDelimitedStream extends FixedLengthStream {
+
+        CloseDelimitedStream() {
+            super(Long.MAX_VALUE);
+        }
+
+        @Override
+        void finish() throws IOException {
+            flush();
+        }
+    }
+
+    private final class ChunkedStream extends ResponseStream {
+
+        // Position of the header of the current chunk, or -1 if there's none
+        private int chunkStart = -1;
+
+        @Override
+        void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (chunkStart < 0 && out.remaining() > CHUNK_HEADER_SIZE + CRLF.length + LAST_CHUNK.length) {
+                chunkStart = out.position();
+                out.position(chunkStart + CHUNK_HEADER_SIZE);
+            }
+            if (chunkStart >= 0 && len <= out.remaining() - CRLF.length - LAST_CHUNK.length) {
+                out.put(b, off, len);
+                return;
+            }
+            // Too big for the buffer, send it as a chunk of its own
+            endChunk();
+            out.flip();
+            ByteBuffer header = ByteBuffer.wrap((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            connection.write(out, header, ByteBuffer.wrap(b, off, len), ByteBuffer.wrap(CRLF));
+            out.clear();
+        }
+
+        @Override
+        void flush() throws IOException {
+            endChunk();
+            if (out.position() > 0) {
+                out.flip();
+                connection.write(out);
+                out.clear();
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            endChunk();
+            out.put(LAST_CHUNK);
+            out.flip();
+            connection.write(out);
+            out.clear();
+        }
+
+        private void endChunk() {
+            if (chunkStart < 0) {
+                return;
+            }
+            int size = out.position() - chunkStart - CHUNK_HEADER_SIZE;
+            if (size == 0) {
+                out.position(chunkStart);
+            } else {
+                // Leading zeros are allowed in the chunk size, so the header has a fixed length
+                String hex = Integer.toHexString(size);
+                for (int i = 0; i < CHUNK_HEADER_SIZE - 2; i++) {
+                    int digit = i - (CHUNK_HEADER_SIZE - 2 - hex.length());
+                    out.put(chunkStart + i, digit < 0 ? (byte) '0' : (byte) hex.charAt(digit));
+                }
+                out.put(chunkStart + CHUNK_HEADER_SIZE - 2, (byte) '\r');
+                out.put(chunkStart + CHUNK_HEADER_SIZE - 1, (byte) '\n');
+                out.put(CRLF);
+            }
+            chunkStart = -1;
+        }
+    }
+}
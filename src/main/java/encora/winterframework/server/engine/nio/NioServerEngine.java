@@ -0,0 +1,142 @@
+package encora.winterframework.server.engine.nio;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.server.engine.ServerEngine;
+import encora.winterframework.util.ByteBufferPool;
+
+/**
+ * Engine built on NIO selectors, with one event loop per available processor
+ * Connections are kept alive between requests and pipelined requests are answered in order. Reading and writing
+ * use pooled direct buffers.
+ * <p>
+ * Besides the common settings, it takes 'eventLoops', 'bufferSize', 'maxBodySize', 'idleTimeout' and
+ * 'writeTimeout' (both in milliseconds) from the {@link ServerConfig}.
+ */
+public class NioServerEngine implements ServerEngine {
+
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    private final List<Map.Entry<String, HttpHandler>> contexts = new ArrayList<>();
+
+    private ServerSocketChannel serverChannel;
+
+    private EventLoop[] loops;
+
+    private Executor executor;
+
+    private ByteBufferPool buffers;
+
+    private int maxBodySize;
+
+    private long idleTimeout;
+
+    private long writeTimeout;
+
+    @Override
+    public void start(ServerConfig config, Map<String, HttpHandler> contexts, Executor executor) throws IOException {
+        this.contexts.addAll(contexts.entrySet());
+        // The longest matching prefix wins, so try the longest ones first
+        this.contexts.sort(Comparator.comparingInt((Map.Entry<String, HttpHandler> c) -> c.getKey().length()).reversed());
+        this.executor = executor;
+        int loopCount = config.getInt("eventLoops", Runtime.getRuntime().availableProcessors());
+        this.buffers = new ByteBufferPool(config.getInt("bufferSize", 16 * 1024), config.getInt("maxPooledBuffers", 1024));
+        this.maxBodySize = config.getInt("maxBodySize", 8 * 1024 * 1024);
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.getLong("idleTimeout", 60_000));
+        this.writeTimeout = config.getLong("writeTimeout", 30_000);
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.getPort()), Math.max(0, config.getBacklog()));
+        serverChannel.configureBlocking(false);
+        loops = new EventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(this, i);
+        }
+        loops[0].accept(serverChannel, loops);
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        log.info("NIO engine started with " + loops.length + " event loops");
+    }
+
+    @Override
+    public void stop() {
+        if (Objects.nonNull(loops)) {
+            for (EventLoop loop : loops) {
+                loop.stop();
+            }
+        }
+        if (Objects.nonNull(serverChannel)) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                log.log(Level.FINE, "Error closing the server channel", e);
+            }
+        }
+    }
+
+    HttpHandler findHandler(String path) {
+        String safePath = Objects.isNull(path) ? "/" : path;
+        for (Map.Entry<String, HttpHandler> context : contexts) {
+            if (safePath.startsWith(context.getKey())) {
+                return context.getValue();
+            }
+        }
+        return NioServerEngine::notFound;
+    }
+
+    /**
+     * Run the handler in the executor, or in the calling loop if there's none
+     */
+    void execute(Runnable task) {
+        if (Objects.isNull(executor)) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * @return Whether the handlers run in the event loops, so they may block them
+     */
+    boolean runsHandlersInLoop() {
+        return Objects.isNull(executor);
+    }
+
+    ByteBufferPool getBuffers() {
+        return buffers;
+    }
+
+    int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+    }
+}
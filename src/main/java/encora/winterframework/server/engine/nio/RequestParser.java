@@ -0,0 +1,196 @@
+package encora.winterframework.server.engine.nio;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Incremental parser of HTTP/1.x requests
+ * It's fed with whatever was read from the connection, and returns a request once its head and body are complete.
+ * Bytes of the next pipelined request are left in the buffer.
+ */
+final class RequestParser {
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final long maxBodySize;
+
+    // Bytes of the buffer already searched for the end of the head
+    private int scanned;
+
+    private Request request;
+
+    private int bodyFilled;
+
+    private boolean expectContinue;
+
+    RequestParser(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @param buffer Buffer in read mode, its position is moved past the consumed bytes
+     * @return The complete request, or null if more bytes are needed
+     * @throws BadRequestException If the request is malformed or not supported
+     */
+    Request parse(ByteBuffer buffer) throws BadRequestException {
+        if (Objects.isNull(request)) {
+            skipLeadingLineBreaks(buffer);
+            int end = findEndOfHead(buffer);
+            if (end < 0) {
+                if (buffer.remaining() == buffer.capacity()) {
+                    throw new BadRequestException(431, "Request Header Fields Too Large");
+                }
+                return null;
+            }
+            byte[] head = new byte[end - buffer.position()];
+            buffer.get(head);
+            buffer.position(buffer.position() + 4);
+            scanned = 0;
+            request = parseHead(new String(head, StandardCharsets.ISO_8859_1));
+        }
+        byte[] body = request.body;
+        int count = Math.min(buffer.remaining(), body.length - bodyFilled);
+        buffer.get(body, bodyFilled, count);
+        bodyFilled += count;
+        if (bodyFilled < body.length) {
+            return null;
+        }
+        Request complete = request;
+        request = null;
+        bodyFilled = 0;
+        expectContinue = false;
+        return complete;
+    }
+
+    /**
+     * @return Whether the client is waiting for a '100 Continue' before sending the body, only once per request
+     */
+    boolean takeExpectContinue() {
+        boolean expect = expectContinue;
+        expectContinue = false;
+        return expect;
+    }
+
+    /**
+     * @return Whether there's no partial request
+     */
+    boolean isIdle() {
+        return Objects.isNull(request) && scanned == 0;
+    }
+
+    private static void skipLeadingLineBreaks(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get(buffer.position());
+            if (b != '\r' && b != '\n') {
+                return;
+            }
+            buffer.position(buffer.position() + 1);
+        }
+    }
+
+    private int findEndOfHead(ByteBuffer buffer) {
+        int start = buffer.position() + Math.max(0, scanned - 3);
+        int limit = buffer.limit();
+        for (int i = start; i + 3 < limit; i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        scanned = buffer.remaining();
+        return -1;
+    }
+
+    private Request parseHead(String head) throws BadRequestException {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+        URI uri;
+        try {
+            uri = URI.create(requestLine[1]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int separator = lines[i].indexOf(':');
+            if (separator <= 0) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+            headers.add(lines[i].substring(0, separator).trim(), lines[i].substring(separator + 1).trim());
+        }
+        if (headers.containsKey("Transfer-Encoding")) {
+            throw new BadRequestException(501, "Not Implemented");
+        }
+        long length = 0;
+        String contentLength = headers.getFirst("Content-Length");
+        if (Objects.nonNull(contentLength)) {
+            try {
+                length = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException(400, "Bad Request");
+            }
+        }
+        if (length < 0) {
+            throw new BadRequestException(400, "Bad Request");
+        }
+        if (length > maxBodySize) {
+            throw new BadRequestException(413, "Payload Too Large");
+        }
+        String connection = Objects.toString(headers.getFirst("Connection"), "").toLowerCase(Locale.ROOT);
+        boolean http11 = requestLine[2].equals("HTTP/1.1");
+        boolean keepAlive = http11 ? !connection.contains("close") : connection.contains("keep-alive");
+        expectContinue = length > 0 && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"));
+        byte[] body = length == 0 ? EMPTY_BODY : new byte[(int) length];
+        return new Request(requestLine[0], uri, requestLine[2], headers, body, keepAlive);
+    }
+
+    /**
+     * A request ready to be handled
+     */
+    static final class Request {
+
+        final String method;
+
+        final URI uri;
+
+        final String protocol;
+
+        final Headers headers;
+
+        final byte[] body;
+
+        final boolean keepAlive;
+
+        private Request(String method, URI uri, String protocol, Headers headers, byte[] body, boolean keepAlive) {
+            this.method = method;
+            this.uri = uri;
+            this.protocol = protocol;
+            this.headers = headers;
+            this.body = body;
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    /**
+     * A request that gets an error response and closes the connection
+     */
+    static final class BadRequestException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String reason) {
+            super(reason);
+            this.status = status;
+        }
+    }
+}
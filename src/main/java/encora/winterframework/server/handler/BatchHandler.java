@@ -0,0 +1,329 @@
+package encora.winterframework.server.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import encora.winterframework.context.ApplicationContext;
+import encora.winterframework.context.route.Route;
+import encora.winterframework.context.route.RouteMatch;
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.server.admission.ConcurrencyLimiter;
+import encora.winterframework.server.admission.LoadShedding;
+import encora.winterframework.server.admission.RateLimiter;
+import encora.winterframework.server.codec.MediaCodec;
+import encora.winterframework.server.metrics.MetricsRegistry;
+import encora.winterframework.server.metrics.RouteMetrics;
+import encora.winterframework.util.BufferedOutput;
+
+/**
+ * Runs many route calls sent in a single request, and answers all of them in a single response
+ * The body is a list of {@code {"method": "GET", "path": "/users/1"}} calls, and the response a list of
+ * {@code {"status": 200, "body": ...}} in the same order. A call may also have {@code headers}, added to the ones of
+ * the batch, and a {@code body}, handed to its handler in the format of the batch. Consecutive GET, HEAD and OPTIONS calls run in parallel on
+ * the request executor, while any other call waits for the ones before it and runs alone, so writes keep their
+ * order. Every call goes through the rate limit, concurrency limit and metrics of its route.
+ */
+public class BatchHandler implements HttpHandler {
+
+    // Do not use uppercase since it's not a constant
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    public static final String PATH = "/_batch";
+
+    private final MetricsRegistry metrics = ApplicationContext.getBean(MetricsRegistry.class);
+
+    private final RESTControllerHandler handler;
+
+    private final int maxRequests;
+
+    private final int concurrency;
+
+    // Runs the parallel calls, null runs every call in the thread of the batch
+    private final Executor executor;
+
+    /**
+     * @param handler  The handler of the routes, whose settings and codecs are shared with the batches
+     * @param config   The server configuration, with the limits of the batches
+     * @param executor The request executor, may be null
+     */
+    public BatchHandler(RESTControllerHandler handler, ServerConfig config, Executor executor) {
+        this.handler = handler;
+        this.maxRequests = config.getBatchMaxRequests();
+        this.concurrency = Math.max(1, config.getBatchConcurrency());
+        this.executor = executor;
+    }
+
+    @Override
+    public void handle(HttpExchange req) throws IOException {
+        if (maxRequests <= 0) {
+            RESTControllerHandler.sendError(req, 404, "Hey! Batch requests are disabled");
+            return;
+        }
+        if (!"POST".equals(req.getRequestMethod())) {
+            req.getResponseHeaders().set("Allow", "POST");
+            RESTControllerHandler.sendError(req, 405, "Hey! '" + PATH + "' only accepts [POST]");
+            return;
+        }
+        if (LoadShedding.isShedding()) {
+            req.getResponseHeaders().set("Retry-After", "1");
+            RESTControllerHandler.sendError(req, 503, "Hey! The server is too busy right now, try again later");
+            return;
+        }
+        MediaCodec codec = handler.getCodecs().forContentType(req.getRequestHeaders().getFirst("Content-Type"));
+        codec = Objects.isNull(codec) ? handler.getCodecs().getDefault() : codec;
+        BatchRequest[] calls;
+        try {
+            calls = (BatchRequest[]) codec.read(req.getRequestBody(), BatchRequest[].class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.log(Level.FINE, "Malformed batch request", e);
+            RESTControllerHandler.sendError(req, 400, "Hey! A batch must be a list of {method, path} calls");
+            return;
+        }
+        if (Objects.isNull(calls)) {
+            calls = new BatchRequest[0];
+        }
+        if (calls.length > maxRequests) {
+            RESTControllerHandler.sendError(req, 413, String.format("Hey! A batch takes up to %d calls, not %d", maxRequests, calls.length));
+            return;
+        }
+        handler.writeBody(req, 200, run(req, codec, calls), PATH);
+    }
+
+    private BatchResponse[] run(HttpExchange req, MediaCodec codec, BatchRequest[] calls) {
+        BatchResponse[] responses = new BatchResponse[calls.length];
+        int from = 0;
+        while (from < calls.length) {
+            int to = from;
+            while (to < calls.length && isSafe(calls[to])) {
+                to++;
+            }
+            if (to == from) {
+                responses[from] = call(req, codec, calls[from]);
+                from++;
+            } else {
+                runParallel(req, codec, calls, responses, from, to);
+                from = to;
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Share the calls between the thread of the batch and some helpers of the executor
+     * The batch thread takes calls as well, so the batch finishes even if the executor is too busy to run the
+     * helpers, instead of waiting for threads the batch itself is holding.
+     */
+    private void runParallel(HttpExchange req, MediaCodec codec, BatchRequest[] calls, BatchResponse[] responses, int from, int to) {
+        AtomicInteger next = new AtomicInteger(from);
+        CountDownLatch done = new CountDownLatch(to - from);
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < to) {
+                try {
+                    responses[i] = call(req, codec, calls[i]);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        int helpers = Objects.isNull(executor) ? 0 : Math.min(concurrency, to - from) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(() -> {
+                    // Shed helpers run in the submitting thread, which is busy with the batch already
+                    if (!LoadShedding.isShedding()) {
+                        worker.run();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        boolean interrupted = false;
+        while (done.getCount() > 0) {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Call a route the same way {@link RESTControllerHandler} does, keeping the value instead of writing it
+     */
+    private BatchResponse call(HttpExchange req, MediaCodec codec, BatchRequest request) {
+        if (Objects.isNull(request) || Objects.isNull(request.method) || Objects.isNull(request.path)) {
+            return new BatchResponse(400, "Hey! Every call needs a method and a path");
+        }
+        String method = request.method.toUpperCase(Locale.ROOT);
+        URI uri;
+        try {
+            uri = URI.create(request.path);
+        } catch (IllegalArgumentException e) {
+            return new BatchResponse(400, "Hey! '" + request.path + "' is not a valid path");
+        }
+        String path = uri.getPath();
+        RouteMatch match = ApplicationContext.getRequestHandler(method, path);
+        if (Objects.isNull(match)) {
+            metrics.recordUnmatched();
+            Set<String> allowedMethods = ApplicationContext.getAllowedMethods(path);
+            return allowedMethods.isEmpty()
+                ? new BatchResponse(404, String.format("Hey! There's no handler for '%s %s' registered", method, path))
+                : new BatchResponse(405, String.format("Hey! '%s' only accepts %s", path, allowedMethods));
+        }
+        Route route = match.getRoute();
+        RouteSettings routeSettings = handler.getSettings(route);
+        RouteMetrics routeMetrics = routeSettings.getMetrics();
+        RateLimiter rateLimiter = routeSettings.getRateLimiter();
+        if (Objects.nonNull(rateLimiter) && rateLimiter.acquire(rateLimiter.clientOf(req)) < 0) {
+            routeMetrics.recordRateLimited();
+            return new BatchResponse(429, "Hey! Slow down, you're making too many requests");
+        }
+        ConcurrencyLimiter limiter = routeSettings.getLimiter();
+        if (Objects.nonNull(limiter) && !limiter.tryAcquire()) {
+            routeMetrics.recordRejected();
+            return new BatchResponse(503, String.format("Hey! '%s' is too busy right now, try again later", route));
+        }
+        routeMetrics.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object[] arguments;
+            try {
+                arguments = route.resolveArguments(new ExchangeValues(match, uri.getRawQuery(), headersOf(req, codec, request),
+                    bodyOf(codec, request), handler.getCodecs()));
+            } catch (IllegalArgumentException e) {
+                // A bad call is not an error of the route
+                failed = false;
+                return new BatchResponse(400, "Hey! " + e.getMessage());
+            }
+            Object value = route.getInvoker().invoke(arguments);
+            if (value instanceof CompletionStage) {
+                CompletableFuture<?> future = ((CompletionStage<?>) value).toCompletableFuture();
+                long timeout = routeSettings.getTimeout();
+                value = timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+            }
+            if (StreamingResponse.isStreaming(value)) {
+                value = StreamingResponse.toList(value);
+            }
+            failed = false;
+            return new BatchResponse(200, value);
+        } catch (Throwable e) {
+            Throwable cause = RESTControllerHandler.unwrap(e);
+            if (cause instanceof TimeoutException) {
+                return new BatchResponse(504, String.format("Hey! '%s' didn't answer in time", route));
+            } else if (cause instanceof CancellationException) {
+                return new BatchResponse(503, String.format("Hey! '%s' was cancelled", route));
+            }
+            log.log(Level.WARNING, String.format("Error calling method '%s'", route.getHandlerMethod().getName()), cause);
+            return new BatchResponse(500, "Error calling " + route);
+        } finally {
+            routeMetrics.recordHandler(System.nanoTime() - start);
+            RESTControllerHandler.finish(routeSettings, start, failed);
+        }
+    }
+
+    /**
+     * The headers of the batch, with the ones of the call on top
+     * The Content-Type is always the one of the batch, since that's the format the body of the call is in.
+     */
+    private static Headers headersOf(HttpExchange req, MediaCodec codec, BatchRequest request) {
+        Headers headers = new Headers();
+        headers.putAll(req.getRequestHeaders());
+        if (Objects.nonNull(request.headers)) {
+            request.headers.forEach((name, value) -> {
+                if (Objects.nonNull(value)) {
+                    headers.set(name, value);
+                }
+            });
+        }
+        if (Objects.nonNull(request.body)) {
+            headers.set("Content-Type", codec.getMediaType());
+        }
+        return headers;
+    }
+
+    /**
+     * The body of the call, written back in the format of the batch so the handler reads it like any other body
+     */
+    private static InputStream bodyOf(MediaCodec codec, BatchRequest request) throws IllegalAccessException {
+        if (Objects.isNull(request.body)) {
+            return null;
+        }
+        BufferedOutput output = codec.newOutput(256);
+        codec.write(request.body, output);
+        return new ByteArrayInputStream(output.toByteArray());
+    }
+
+    private static boolean isSafe(BatchRequest request) {
+        if (Objects.isNull(request) || Objects.isNull(request.method)) {
+            return true;
+        }
+        switch (request.method.toUpperCase(Locale.ROOT)) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * One of the calls of a batch
+     */
+    static class BatchRequest {
+
+        private String method;
+
+        private String path;
+
+        private Map<String, String> headers;
+
+        private Object body;
+
+        BatchRequest() {}
+    }
+
+    /**
+     * The result of a call, the body is the value returned by the handler or the error message
+     */
+    static class BatchResponse {
+
+        private final int status;
+
+        private final Object body;
+
+        BatchResponse(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
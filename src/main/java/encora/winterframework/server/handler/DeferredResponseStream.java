@@ -0,0 +1,82 @@
+package encora.winterframework.server.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import encora.winterframework.server.compression.ContentEncoding;
+import encora.winterframework.server.compression.ResponseCompression;
+
+/**
+ * Response body that sends the headers with chunked transfer encoding on the first write
+ * Used when the size of the body is unknown because it doesn't fit in the serialization buffer, or because it's
+ * compressed on the fly
+ */
+class DeferredResponseStream extends OutputStream {
+
+    private final HttpExchange exchange;
+
+    private final int status;
+
+    private final ResponseCompression compression;
+
+    private final ContentEncoding encoding;
+
+    private OutputStream body;
+
+    /**
+     * @param encoding The encoding of the body, or null to send it as it is
+     */
+    DeferredResponseStream(HttpExchange exchange, int status, ResponseCompression compression, ContentEncoding encoding) {
+        this.exchange = exchange;
+        this.status = status;
+        this.compression = compression;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return Whether the headers were already sent
+     */
+    boolean isCommitted() {
+        return body != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        open().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        open().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (body != null) {
+            body.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (body != null) {
+            body.close();
+        }
+    }
+
+    private OutputStream open() throws IOException {
+        if (body == null) {
+            if (encoding == null) {
+                exchange.sendResponseHeaders(status, 0);
+                body = exchange.getResponseBody();
+            } else {
+                exchange.getResponseHeaders().set("Content-Encoding", encoding.getToken());
+                exchange.sendResponseHeaders(status, 0);
+                body = compression.open(exchange.getResponseBody(), encoding);
+            }
+        }
+        return body;
+    }
+}
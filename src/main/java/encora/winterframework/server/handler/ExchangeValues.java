@@ -0,0 +1,116 @@
+package encora.winterframework.server.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import encora.winterframework.context.route.RequestValues;
+import encora.winterframework.context.route.RouteMatch;
+import encora.winterframework.server.codec.MediaCodec;
+import encora.winterframework.server.codec.MediaCodecs;
+
+/**
+ * The values of a request the handler arguments are bound from
+ * The query string is only parsed, and the body only read, when some parameter asks for them.
+ */
+class ExchangeValues implements RequestValues {
+
+    private final RouteMatch match;
+
+    private final String rawQuery;
+
+    private final Headers headers;
+
+    private final InputStream body;
+
+    private final MediaCodecs codecs;
+
+    private Map<String, String> query;
+
+    ExchangeValues(HttpExchange req, RouteMatch match, MediaCodecs codecs) {
+        this(match, req.getRequestURI().getRawQuery(), req.getRequestHeaders(), req.getRequestBody(), codecs);
+    }
+
+    /**
+     * @param match    The route and path variables of the request
+     * @param rawQuery The query string without decoding, may be null
+     * @param headers  The request headers
+     * @param body     The request body, may be null if there's none
+     * @param codecs   The codecs the body is read with, chosen by its Content-Type
+     */
+    ExchangeValues(RouteMatch match, String rawQuery, Headers headers, InputStream body, MediaCodecs codecs) {
+        this.match = match;
+        this.rawQuery = rawQuery;
+        this.headers = headers;
+        this.body = body;
+        this.codecs = codecs;
+    }
+
+    @Override
+    public String getPathVariable(int index) {
+        return match.getVariable(index);
+    }
+
+    @Override
+    public String getQueryParameter(String name) {
+        if (Objects.isNull(query)) {
+            query = parseQuery(rawQuery);
+        }
+        return query.get(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Object readBody(Type type) throws IOException, ReflectiveOperationException {
+        byte[] bytes = Objects.isNull(body) ? new byte[0] : body.readAllBytes();
+        if (bytes.length == 0) {
+            return null;
+        }
+        String contentType = headers.getFirst("Content-Type");
+        MediaCodec codec = codecs.forContentType(contentType);
+        if (Objects.isNull(codec)) {
+            if (Objects.nonNull(contentType)) {
+                throw new IllegalArgumentException("Unsupported Content-Type '" + contentType + "'");
+            }
+            codec = codecs.getDefault();
+        }
+        try {
+            return codec.read(new ByteArrayInputStream(bytes), type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed request body, " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Only the first value of every parameter is kept
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (Objects.isNull(rawQuery) || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
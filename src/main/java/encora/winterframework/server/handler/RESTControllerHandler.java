@@ -2,57 +2,493 @@ package encora.winterframework.server.handler;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import encora.winterframework.annotation.Cacheable;
+import encora.winterframework.annotation.RateLimit;
+import encora.winterframework.annotation.RequestMapping;
 import encora.winterframework.context.ApplicationContext;
-import encora.winterframework.util.JSONParser;
+import encora.winterframework.context.route.Route;
+import encora.winterframework.context.route.RouteMatch;
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.server.admission.ConcurrencyLimiter;
+import encora.winterframework.server.admission.LoadShedding;
+import encora.winterframework.server.admission.RateLimiter;
+import encora.winterframework.server.cache.ResponseCache;
+import encora.winterframework.server.codec.MediaCodec;
+import encora.winterframework.server.codec.MediaCodecs;
+import encora.winterframework.server.compression.ContentEncoding;
+import encora.winterframework.server.compression.ResponseCompression;
+import encora.winterframework.server.metrics.MetricsRegistry;
+import encora.winterframework.server.metrics.RouteMetrics;
+import encora.winterframework.util.BufferPool;
+import encora.winterframework.util.BufferedOutput;
+import encora.winterframework.util.json.JsonWriter;
 
 public class RESTControllerHandler implements HttpHandler {
 
     // Do not use uppercase since it's not a constant
     private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
 
+    // Responses up to this size are sent with an exact content length
+    private static final BufferPool BUFFERS = new BufferPool(32 * 1024, 256);
+
+    // Used by the adaptive limiters of the routes without a maximum of their own
+    private static final int ADAPTIVE_INITIAL_LIMIT = 20;
+
+    private static final int ADAPTIVE_MAX_LIMIT = 1000;
+
+    private final MetricsRegistry metrics = ApplicationContext.getBean(MetricsRegistry.class);
+
+    private final ConcurrentHashMap<Route, RouteSettings> settings = new ConcurrentHashMap<>();
+
+    private final ResponseCompression compression;
+
+    private final StreamingResponse streaming;
+
+    private final MediaCodecs codecs;
+
+    private final long asyncTimeout;
+
+    private final int maxConcurrency;
+
+    private final boolean adaptiveConcurrency;
+
+    private final int rateLimitClients;
+
+    // Shared by the routes without a rate limit of their own, null if the server has none
+    private final RateLimiter rateLimiter;
+
+    // Writes the responses of the asynchronous handlers, null writes them in the thread completing the handler
+    private final Executor executor;
+
+    public RESTControllerHandler() {
+        this(ServerConfig.defaults(), null);
+    }
+
+    public RESTControllerHandler(ServerConfig config, Executor executor) {
+        this.compression = ResponseCompression.from(config);
+        this.streaming = StreamingResponse.from(config);
+        this.codecs = MediaCodecs.load();
+        this.asyncTimeout = config.getAsyncTimeout();
+        this.maxConcurrency = config.getMaxConcurrency();
+        this.adaptiveConcurrency = config.isAdaptiveConcurrency();
+        this.rateLimitClients = config.getRateLimitClients();
+        this.rateLimiter = config.getRateLimit() <= 0 ? null
+            : new RateLimiter(config.getRateLimit(), config.getRateLimitBurst(), rateLimitClients, config.getRateLimitHeader());
+        this.executor = executor;
+    }
+
     @Override
     public void handle(HttpExchange req) throws IOException {
-        String reqResponseJSON;
-        URI reqURI = req.getRequestURI();
-        String reqPath = req.getRequestMethod() + reqURI.getPath();
-        Method reqMethod = validateRequestedMethod(req, reqPath);
+        RouteMatch match = validateRequestedRoute(req);
+        if (Objects.isNull(match)) {
+            return;
+        }
+        Route route = match.getRoute();
+        RouteSettings routeSettings = getSettings(route);
+        RouteMetrics routeMetrics = routeSettings.getMetrics();
+        if (!checkRateLimit(req, routeSettings)) {
+            return;
+        }
+        ConcurrencyLimiter limiter = routeSettings.getLimiter();
+        if (LoadShedding.isShedding() || (Objects.nonNull(limiter) && !limiter.tryAcquire())) {
+            routeMetrics.recordRejected();
+            req.getResponseHeaders().set("Retry-After", "1");
+            sendError(req, 503, String.format("Hey! '%s' is too busy right now, try again later", route));
+            return;
+        }
+        routeMetrics.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean async = false;
+        try {
+            Object[] arguments = bindArguments(req, match);
+            if (Objects.isNull(arguments)) {
+                // A bad request is not an error of the route
+                failed = false;
+                return;
+            }
+            ResponseCache cache = routeSettings.getCache();
+            if (Objects.nonNull(cache)) {
+                failed = !writeCached(req, match, arguments, cache, routeSettings);
+                return;
+            }
+            Object reqResponse;
+            try {
+                reqResponse = route.getInvoker().invoke(arguments);
+            } catch (Throwable e) {
+                routeMetrics.recordHandler(System.nanoTime() - start);
+                sendFailure(req, route, e);
+                return;
+            }
+            if (reqResponse instanceof CompletionStage) {
+                async = true;
+                writeWhenComplete(req, route, (CompletionStage<?>) reqResponse, routeSettings, start);
+                return;
+            }
+            long invoked = System.nanoTime();
+            routeMetrics.recordHandler(invoked - start);
+            failed = !writeBody(req, 200, reqResponse, route);
+            routeMetrics.recordSerialization(System.nanoTime() - invoked);
+        } finally {
+            if (!async) {
+                finish(routeSettings, start, failed);
+            }
+        }
+    }
+
+    /**
+     * @return The arguments of the handler, or null if the request can't provide them and it already got an error
+     */
+    private Object[] bindArguments(HttpExchange req, RouteMatch match) throws IOException {
+        Route route = match.getRoute();
+        try {
+            return route.resolveArguments(new ExchangeValues(req, match, codecs));
+        } catch (IllegalArgumentException e) {
+            log.log(Level.FINE, "Bad request for " + route, e);
+            sendError(req, 400, "Hey! " + e.getMessage());
+        } catch (ReflectiveOperationException e) {
+            log.log(Level.WARNING, "Error reading the request of " + route, e);
+            sendError(req, 500, "Error reading the request of " + route);
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether the client can go on, otherwise it already got a 429
+     */
+    private boolean checkRateLimit(HttpExchange req, RouteSettings routeSettings) throws IOException {
+        RateLimiter limiter = routeSettings.getRateLimiter();
+        if (Objects.isNull(limiter)) {
+            return true;
+        }
+        long remaining = limiter.acquire(limiter.clientOf(req));
+        req.getResponseHeaders().set("RateLimit-Limit", Integer.toString(limiter.getBurst()));
+        if (remaining >= 0) {
+            req.getResponseHeaders().set("RateLimit-Remaining", Long.toString(remaining));
+            return true;
+        }
+        String retryAfter = Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(-remaining + 999_999_999)));
+        routeSettings.getMetrics().recordRateLimited();
+        req.getResponseHeaders().set("RateLimit-Remaining", "0");
+        req.getResponseHeaders().set("RateLimit-Reset", retryAfter);
+        req.getResponseHeaders().set("Retry-After", retryAfter);
+        sendError(req, 429, "Hey! Slow down, you're making too many requests");
+        return false;
+    }
+
+    static void finish(RouteSettings routeSettings, long start, boolean failed) {
+        routeSettings.getMetrics().end(failed);
+        if (Objects.nonNull(routeSettings.getLimiter())) {
+            routeSettings.getLimiter().release(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Write the response once the stage completes, without holding the request thread meanwhile
+     * The exchange stays open until then, or until the timeout of the route is over.
+     */
+    private void writeWhenComplete(HttpExchange req, Route route, CompletionStage<?> stage, RouteSettings routeSettings, long start) {
+        RouteMetrics routeMetrics = routeSettings.getMetrics();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        stage.whenComplete((value, error) -> {
+            if (Objects.isNull(error)) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        long timeout = routeSettings.getTimeout();
+        if (timeout > 0) {
+            result.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        BiConsumer<Object, Throwable> writer = (value, error) -> {
+            boolean failed = true;
+            try {
+                long completed = System.nanoTime();
+                routeMetrics.recordHandler(completed - start);
+                if (Objects.isNull(error)) {
+                    failed = !writeBody(req, 200, value, route);
+                    routeMetrics.recordSerialization(System.nanoTime() - completed);
+                } else {
+                    sendFailure(req, route, error);
+                }
+            } catch (IOException e) {
+                log.log(Level.FINE, "Cannot write the response of " + route, e);
+                req.close();
+            } finally {
+                finish(routeSettings, start, failed);
+            }
+        };
+        if (Objects.isNull(executor)) {
+            result.whenComplete(writer);
+        } else {
+            result.whenCompleteAsync(writer, executor);
+        }
+    }
+
+    MediaCodecs getCodecs() {
+        return codecs;
+    }
+
+    RouteSettings getSettings(Route route) {
+        RouteSettings routeSettings = settings.get(route);
+        if (Objects.isNull(routeSettings)) {
+            routeSettings = settings.computeIfAbsent(route, this::createSettings);
+        }
+        return routeSettings;
+    }
+
+    private RouteSettings createSettings(Route route) {
+        Cacheable cacheable = route.getHandlerMethod().getAnnotation(Cacheable.class);
+        RequestMapping mapping = route.getHandlerMethod().getAnnotation(RequestMapping.class);
+        long timeout = Objects.isNull(mapping) ? 0 : mapping.timeout();
+        int routeMaxConcurrency = Objects.isNull(mapping) ? 0 : mapping.maxConcurrency();
+        int max = routeMaxConcurrency == 0 ? maxConcurrency : routeMaxConcurrency;
+        ConcurrencyLimiter limiter = null;
+        if (max > 0) {
+            limiter = new ConcurrencyLimiter(max, max, adaptiveConcurrency);
+        } else if (adaptiveConcurrency && routeMaxConcurrency == 0) {
+            limiter = new ConcurrencyLimiter(ADAPTIVE_INITIAL_LIMIT, ADAPTIVE_MAX_LIMIT, true);
+        }
+        RateLimit rateLimit = route.getHandlerMethod().getAnnotation(RateLimit.class);
+        return new RouteSettings(
+            metrics.forRoute(route),
+            Objects.isNull(cacheable) ? null : ResponseCache.from(cacheable),
+            limiter,
+            Objects.isNull(rateLimit) ? rateLimiter
+                : new RateLimiter(rateLimit.rate(), rateLimit.burst(), rateLimitClients, rateLimit.header()),
+            timeout == 0 ? asyncTimeout : timeout);
+    }
+
+    /**
+     * Answer a handler that failed, timeouts and cancellations are not errors of the server
+     */
+    private void sendFailure(HttpExchange req, Route route, Throwable error) throws IOException {
+        Throwable cause = unwrap(error);
+        if (cause instanceof TimeoutException) {
+            sendError(req, 504, String.format("Hey! '%s' didn't answer in time", route));
+        } else if (cause instanceof CancellationException) {
+            sendError(req, 503, String.format("Hey! '%s' was cancelled", route));
+        } else {
+            log.log(Level.WARNING, String.format("Error calling method '%s'", route.getHandlerMethod().getName()), cause);
+            sendError(req, 500, "Error calling " + route);
+        }
+    }
+
+    /**
+     * @return The error thrown by the handler, without the wrappers of the futures
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && Objects.nonNull(cause.getCause())) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Send the cached response of the path, calling the handler if there's none
+     * The response has an ETag, so clients already having it get a 304 without a body. Entries are keyed by the
+     * path and query only, so handlers reading headers or the body shouldn't be cacheable.
+     *
+     * @return Whether the response was sent without errors
+     */
+    private boolean writeCached(HttpExchange req, RouteMatch match, Object[] arguments, ResponseCache cache, RouteSettings routeSettings) throws IOException {
+        Route route = match.getRoute();
+        RouteMetrics routeMetrics = routeSettings.getMetrics();
+        String query = req.getRequestURI().getRawQuery();
+        MediaCodec codec = codecs.negotiate(req);
+        String path = Objects.isNull(query) ? match.getPath() : match.getPath() + '?' + query;
+        // Every format is a separate entry, JSON keeps the plain path
+        String key = codec == codecs.getDefault() ? path : path + ';' + codec.getMediaType();
+        ContentEncoding accepted = compression.negotiate(req);
+        ContentEncoding encoding = null;
+        ResponseCache.Entry entry;
         try {
-            Object instance = ApplicationContext.getBean(reqMethod.getDeclaringClass());
-            Object reqResponse = reqMethod.invoke(instance);
-            reqResponseJSON = JSONParser.toJSON(reqResponse);
-
-            req.sendResponseHeaders(200, reqResponseJSON.length());
-            OutputStream os = req.getResponseBody();
-            os.write(reqResponseJSON.getBytes());
-            os.close();
+            entry = getOrLoad(cache, key, () -> invokeAndSerialize(route, arguments, routeMetrics, routeSettings.getTimeout(), codec), routeMetrics);
+            if (Objects.nonNull(accepted) && compression.shouldCompress(entry.getBody().length)) {
+                // Compressed responses are variants of the entry, with their own ETag, so they expire with it
+                byte[] identity = entry.getBody();
+                entry = cache.variant(entry, accepted.getToken(), () -> compression.compress(identity, accepted));
+                encoding = accepted;
+            }
+        } catch (Throwable e) {
+            sendFailure(req, route, e);
+            return false;
+        }
+        setVary(req);
+        req.getResponseHeaders().set("ETag", entry.getETag());
+        if (entry.matches(req.getRequestHeaders().getFirst("If-None-Match"))) {
+            req.sendResponseHeaders(304, -1);
             req.close();
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            log.warning(String.format("Error calling method '%s'%n", reqMethod.getName()));
+            return true;
+        }
+        req.getResponseHeaders().set("Content-Type", codec.getContentType());
+        if (Objects.nonNull(encoding)) {
+            req.getResponseHeaders().set("Content-Encoding", encoding.getToken());
         }
-        req.sendResponseHeaders(500, 0);
+        byte[] body = entry.getBody();
+        req.sendResponseHeaders(200, body.length);
+        OutputStream os = req.getResponseBody();
+        os.write(body);
+        os.close();
         req.close();
+        return true;
+    }
+
+    private static ResponseCache.Entry getOrLoad(ResponseCache cache, String key, ResponseCache.Loader loader, RouteMetrics routeMetrics) throws Throwable {
+        ResponseCache.Entry entry = cache.get(key);
+        if (Objects.isNull(entry)) {
+            return cache.load(key, loader);
+        }
+        routeMetrics.recordCacheHit();
+        return entry;
     }
 
-    private Method validateRequestedMethod(HttpExchange req, String reqPath) throws IOException {
-        Method reqMethod = ApplicationContext.getRequestHandlerMethod(reqPath);
-        if (Objects.isNull(reqMethod)) {
-            req.sendResponseHeaders(404, 0);
-            OutputStream os = req.getResponseBody();
-            os.write(String.format("Hey! There's no handler for '%s' registered", reqPath).getBytes());
-            os.close();
+    /**
+     * Asynchronous handlers are waited for here, since the response has to be cached before answering
+     * Streamed responses are cached as an array.
+     */
+    private byte[] invokeAndSerialize(Route route, Object[] arguments, RouteMetrics routeMetrics, long timeout, MediaCodec codec) throws Throwable {
+        long start = System.nanoTime();
+        Object value = route.getInvoker().invoke(arguments);
+        if (value instanceof CompletionStage) {
+            CompletableFuture<?> future = ((CompletionStage<?>) value).toCompletableFuture();
+            value = timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+        }
+        long invoked = System.nanoTime();
+        routeMetrics.recordHandler(invoked - start);
+        BufferedOutput output = codec.newOutput(BUFFERS.getBufferSize());
+        if (!StreamingResponse.isStreaming(value)) {
+            codec.write(value, output);
+        } else if (output instanceof JsonWriter) {
+            streaming.write(value, (JsonWriter) output, null, false);
+        } else {
+            codec.write(StreamingResponse.toList(value), output);
+        }
+        routeMetrics.recordSerialization(System.nanoTime() - invoked);
+        return output.toByteArray();
+    }
+
+    /**
+     * Serialize the response straight into the body, in the format negotiated with the client
+     * Small responses are sent with their exact length, while the ones that don't fit in the buffer are chunked.
+     * Compressed responses are always chunked, and the ones that don't fit in the buffer are compressed regardless
+     * of the minimum size. Iterators and streams are written one element at a time as JSON, see
+     * {@link StreamingResponse}.
+     *
+     * @param source The route or endpoint of the response, for the error messages
+     * @return Whether the response was serialized without errors
+     */
+    boolean writeBody(HttpExchange req, int status, Object value, Object source) throws IOException {
+        boolean streamed = StreamingResponse.isStreaming(value);
+        boolean ndjson = streamed && StreamingResponse.acceptsNdjson(req);
+        MediaCodec codec = streamed ? codecs.getDefault() : codecs.negotiate(req);
+        req.getResponseHeaders().set("Content-Type", ndjson ? StreamingResponse.NDJSON_CONTENT_TYPE : codec.getContentType());
+        ContentEncoding encoding = compression.negotiate(req);
+        setVary(req);
+        DeferredResponseStream body = new DeferredResponseStream(req, status, compression, encoding);
+        byte[] buffer = BUFFERS.acquire();
+        try {
+            BufferedOutput writer = codec.newOutput(body, buffer);
+            if (streamed) {
+                streaming.write(value, (JsonWriter) writer, body, ndjson);
+            } else {
+                codec.write(value, writer);
+            }
+            if (writer.hasFlushed()) {
+                writer.flush();
+            } else if (Objects.nonNull(encoding) && compression.shouldCompress(writer.size())) {
+                writer.writeTo(body);
+            } else {
+                req.sendResponseHeaders(status, writer.size());
+                writer.writeTo(req.getResponseBody());
+            }
+            body.close();
             req.close();
+            return true;
+        } catch (UncheckedIOException e) {
+            req.close();
+            closeQuietly(body);
+            throw e.getCause();
+        } catch (IllegalAccessException | RuntimeException e) {
+            log.log(Level.WARNING, "Error serializing the response of " + source, e);
+            if (body.isCommitted()) {
+                // Part of the response is gone already, all we can do is cut it
+                req.close();
+                closeQuietly(body);
+            } else {
+                req.getResponseHeaders().remove("Content-Type");
+                sendError(req, 500, "Error serializing the response of " + source);
+            }
+            return false;
+        } finally {
+            BUFFERS.release(buffer);
+        }
+    }
+
+    /**
+     * Give the deflater of a compressed body back to the pool, once the exchange is closed so the body can't be finished
+     */
+    private static void closeQuietly(OutputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Expected, the exchange doesn't take more bytes
         }
-        reqMethod.setAccessible(true);
-        return reqMethod;
+    }
+
+    /**
+     * The body depends on the Accept header, and on the Accept-Encoding one when the compression is enabled
+     */
+    private void setVary(HttpExchange req) {
+        req.getResponseHeaders().set("Vary", compression.isEnabled() ? "Accept, Accept-Encoding" : "Accept");
+    }
+
+    private RouteMatch validateRequestedRoute(HttpExchange req) throws IOException {
+        String reqPath = req.getRequestURI().getPath();
+        RouteMatch match = ApplicationContext.getRequestHandler(req.getRequestMethod(), reqPath);
+        if (Objects.nonNull(match)) {
+            return match;
+        }
+        metrics.recordUnmatched();
+        Set<String> allowedMethods = ApplicationContext.getAllowedMethods(reqPath);
+        if (allowedMethods.isEmpty()) {
+            sendError(req, 404, String.format("Hey! There's no handler for '%s %s' registered", req.getRequestMethod(), reqPath));
+        } else {
+            req.getResponseHeaders().set("Allow", String.join(", ", allowedMethods));
+            sendError(req, 405, String.format("Hey! '%s' only accepts %s", reqPath, allowedMethods));
+        }
+        return null;
+    }
+
+    static void sendError(HttpExchange req, int status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        req.sendResponseHeaders(status, body.length);
+        OutputStream os = req.getResponseBody();
+        os.write(body);
+        os.close();
+        req.close();
     }
 }
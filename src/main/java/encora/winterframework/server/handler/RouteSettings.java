@@ -0,0 +1,62 @@
+package encora.winterframework.server.handler;
+
+import encora.winterframework.server.admission.ConcurrencyLimiter;
+import encora.winterframework.server.admission.RateLimiter;
+import encora.winterframework.server.cache.ResponseCache;
+import encora.winterframework.server.metrics.RouteMetrics;
+
+/**
+ * What the handler needs for a route, read from its annotations once instead of on every request
+ */
+final class RouteSettings {
+
+    private final RouteMetrics metrics;
+
+    private final ResponseCache cache;
+
+    private final ConcurrencyLimiter limiter;
+
+    private final RateLimiter rateLimiter;
+
+    private final long timeout;
+
+    RouteSettings(RouteMetrics metrics, ResponseCache cache, ConcurrencyLimiter limiter, RateLimiter rateLimiter, long timeout) {
+        this.metrics = metrics;
+        this.cache = cache;
+        this.limiter = limiter;
+        this.rateLimiter = rateLimiter;
+        this.timeout = timeout;
+    }
+
+    RouteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The response cache, or null if the route is not cacheable
+     */
+    ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return The concurrency limiter, or null if the route has no limit
+     */
+    ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return The rate limiter of the route, or the server one, or null if there's none
+     */
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return Milliseconds to wait for an asynchronous response, zero or negative waits forever
+     */
+    long getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,166 @@
+package encora.winterframework.server.handler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.BaseStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import encora.winterframework.server.ServerConfig;
+import encora.winterframework.util.json.JsonReader;
+import encora.winterframework.util.json.JsonSerializer;
+import encora.winterframework.util.json.JsonWriter;
+
+/**
+ * Writes the elements of an {@link Iterator}, {@link java.util.stream.Stream} or {@link Iterable} one at a time, so
+ * the whole result never needs to be in memory
+ * The elements are written as a JSON array, or as one JSON value per line when the client accepts
+ * {@value #NDJSON_CONTENT_TYPE}. The buffer is flushed every few elements or every few milliseconds, and the
+ * elements stop being produced as soon as a write fails because the client is gone.
+ */
+class StreamingResponse {
+
+    // Do not use uppercase since it's not a constant
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private final int flushSize;
+
+    private final long flushInterval;
+
+    /**
+     * @param flushSize     Elements sent together, zero or negative sends them whenever the buffer gets full
+     * @param flushInterval Milliseconds an element may wait in the buffer, zero or negative waits until it gets full
+     */
+    StreamingResponse(int flushSize, long flushInterval) {
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval > 0 ? TimeUnit.MILLISECONDS.toNanos(flushInterval) : 0;
+    }
+
+    static StreamingResponse from(ServerConfig config) {
+        return new StreamingResponse(config.getStreamFlushSize(), config.getStreamFlushInterval());
+    }
+
+    /**
+     * Collections are already in memory, so they are serialized as any other value
+     *
+     * @return Whether the value is written one element at a time
+     */
+    static boolean isStreaming(Object value) {
+        return value instanceof Iterator || value instanceof BaseStream
+            || (value instanceof Iterable && !(value instanceof Collection));
+    }
+
+    /**
+     * @return Whether the client asked for one JSON value per line
+     */
+    static boolean acceptsNdjson(HttpExchange req) {
+        String accept = req.getRequestHeaders().getFirst("Accept");
+        return Objects.nonNull(accept) && accept.contains(NDJSON_CONTENT_TYPE);
+    }
+
+    /**
+     * Write every element of the value, then close it if it holds any resource
+     *
+     * @param value  The value to write, as accepted by {@link #isStreaming(Object)}
+     * @param writer The writer receiving the elements
+     * @param body   The stream behind the writer, flushed along with it, or null for in-memory writers
+     * @param ndjson Whether to write one value per line instead of an array
+     */
+    void write(Object value, JsonWriter writer, OutputStream body, boolean ndjson) throws IllegalAccessException {
+        JsonSerializer serializer = new JsonSerializer(writer, JsonReader.MAX_DEPTH);
+        Iterator<?> iterator = iteratorOf(value);
+        try {
+            if (!ndjson) {
+                writer.writeByte((byte) '[');
+            }
+            long lastFlush = System.nanoTime();
+            int pending = 0;
+            boolean first = true;
+            while (iterator.hasNext()) {
+                if (!first && !ndjson) {
+                    writer.writeByte((byte) ',');
+                }
+                first = false;
+                serializer.write(iterator.next());
+                if (ndjson) {
+                    writer.writeByte((byte) '\n');
+                }
+                pending++;
+                if (Objects.nonNull(body) && ((flushSize > 0 && pending >= flushSize)
+                    || (flushInterval > 0 && System.nanoTime() - lastFlush >= flushInterval))) {
+                    flush(writer, body);
+                    lastFlush = System.nanoTime();
+                    pending = 0;
+                }
+            }
+            if (!ndjson) {
+                writer.writeByte((byte) ']');
+            }
+        } catch (UncheckedIOException e) {
+            log.log(Level.FINE, "Stopped streaming the response, the client is gone", e);
+            throw e;
+        } finally {
+            close(value, iterator);
+        }
+    }
+
+    /**
+     * Collect every element of the value, for the formats that are not streamed
+     *
+     * @param value The value to collect, as accepted by {@link #isStreaming(Object)}
+     */
+    static List<Object> toList(Object value) {
+        List<Object> elements = new ArrayList<>();
+        Iterator<?> iterator = iteratorOf(value);
+        try {
+            while (iterator.hasNext()) {
+                elements.add(iterator.next());
+            }
+        } finally {
+            close(value, iterator);
+        }
+        return elements;
+    }
+
+    private static void flush(JsonWriter writer, OutputStream body) {
+        writer.flush();
+        try {
+            body.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Iterator<?> iteratorOf(Object value) {
+        if (value instanceof Iterator) {
+            return (Iterator<?>) value;
+        } else if (value instanceof BaseStream) {
+            return ((BaseStream<?, ?>) value).iterator();
+        }
+        return ((Iterable<?>) value).iterator();
+    }
+
+    private static void close(Object value, Iterator<?> iterator) {
+        try {
+            if (value instanceof AutoCloseable) {
+                ((AutoCloseable) value).close();
+            } else if (iterator instanceof AutoCloseable) {
+                ((AutoCloseable) iterator).close();
+            }
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Cannot close the streamed response", e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package encora.winterframework.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed buckets
+ * Every bucket is a {@link LongAdder}, so threads recording at the same time don't contend on a single counter.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {
+        TimeUnit.MICROSECONDS.toNanos(50),
+        TimeUnit.MICROSECONDS.toNanos(100),
+        TimeUnit.MICROSECONDS.toNanos(250),
+        TimeUnit.MICROSECONDS.toNanos(500),
+        TimeUnit.MILLISECONDS.toNanos(1),
+        TimeUnit.MICROSECONDS.toNanos(2500),
+        TimeUnit.MILLISECONDS.toNanos(5),
+        TimeUnit.MILLISECONDS.toNanos(10),
+        TimeUnit.MILLISECONDS.toNanos(25),
+        TimeUnit.MILLISECONDS.toNanos(50),
+        TimeUnit.MILLISECONDS.toNanos(100),
+        TimeUnit.MILLISECONDS.toNanos(250),
+        TimeUnit.MILLISECONDS.toNanos(500),
+        TimeUnit.SECONDS.toNanos(1),
+        TimeUnit.MILLISECONDS.toNanos(2500),
+        TimeUnit.SECONDS.toNanos(5),
+        TimeUnit.SECONDS.toNanos(10)
+    };
+
+    // One more bucket for the durations above the last bound
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int low = 0;
+        int high = BOUNDS.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BOUNDS[middle] < nanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        buckets[low].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return Upper bounds of the buckets in nanoseconds, without the last unbounded one
+     */
+    public static long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @return Number of recorded durations in each bucket, not cumulative
+     */
+    public long[] getCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
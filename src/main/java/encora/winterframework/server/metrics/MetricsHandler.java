@@ -0,0 +1,277 @@
+package encora.winterframework.server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import encora.winterframework.context.ApplicationContext;
+import encora.winterframework.context.StartupReport;
+import encora.winterframework.server.admission.LoadShedding;
+import encora.winterframework.util.json.JsonWriter;
+
+/**
+ * Serves the metrics of every route and the startup report as JSON, or in the Prometheus text format when requested
+ * with {@code ?format=prometheus} or an {@code Accept: text/plain} header
+ */
+public class MetricsHandler implements HttpHandler {
+
+    public static final String PATH = "/winter/metrics";
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    // Upper bound of every bucket in seconds, computed once since they never change
+    private static final String[] BUCKET_LABELS = bucketLabels();
+
+    @Override
+    public void handle(HttpExchange req) throws IOException {
+        if (!"GET".equals(req.getRequestMethod())) {
+            req.getResponseHeaders().set("Allow", "GET");
+            send(req, 405, "text/plain; charset=utf-8", ("Hey! '" + PATH + "' only accepts [GET]").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (LoadShedding.isShedding()) {
+            req.getResponseHeaders().set("Retry-After", "1");
+            send(req, 503, "text/plain; charset=utf-8", "Hey! The server is too busy right now, try again later".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        MetricsRegistry registry = ApplicationContext.getBean(MetricsRegistry.class);
+        StartupReport startup = ApplicationContext.getStartupReport();
+        if (wantsPrometheus(req)) {
+            send(req, 200, PROMETHEUS_CONTENT_TYPE, toPrometheus(registry, startup).getBytes(StandardCharsets.UTF_8));
+        } else {
+            send(req, 200, JSON_CONTENT_TYPE, toJSON(registry, startup));
+        }
+    }
+
+    private static boolean wantsPrometheus(HttpExchange req) {
+        String query = req.getRequestURI().getRawQuery();
+        if (Objects.nonNull(query)) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("format=")) {
+                    return "prometheus".equals(parameter.substring("format=".length()));
+                }
+            }
+        }
+        String accept = req.getRequestHeaders().getFirst("Accept");
+        return Objects.nonNull(accept) && accept.contains("text/plain") && !accept.contains("application/json");
+    }
+
+    static byte[] toJSON(MetricsRegistry registry, StartupReport startup) {
+        JsonWriter writer = new JsonWriter(1024);
+        writer.writeAscii("{\"unmatched\":");
+        writer.writeLong(registry.getUnmatched());
+        writer.writeAscii(",\"routes\":[");
+        List<RouteMetrics> routes = registry.getRoutes();
+        for (int i = 0; i < routes.size(); i++) {
+            RouteMetrics route = routes.get(i);
+            if (i > 0) {
+                writer.writeByte((byte) ',');
+            }
+            writer.writeAscii("{\"method\":");
+            writer.writeString(route.getHttpMethod());
+            writer.writeAscii(",\"route\":");
+            writer.writeString(route.getTemplate());
+            writer.writeAscii(",\"requests\":");
+            writer.writeLong(route.getRequests());
+            writer.writeAscii(",\"errors\":");
+            writer.writeLong(route.getErrors());
+            writer.writeAscii(",\"rejected\":");
+            writer.writeLong(route.getRejected());
+            writer.writeAscii(",\"rateLimited\":");
+            writer.writeLong(route.getRateLimited());
+            writer.writeAscii(",\"inFlight\":");
+            writer.writeLong(route.getInFlight());
+            writer.writeAscii(",\"cacheHits\":");
+            writer.writeLong(route.getCacheHits());
+            writer.writeAscii(",\"handler\":");
+            writeHistogram(writer, route.getHandlerLatency());
+            writer.writeAscii(",\"serialization\":");
+            writeHistogram(writer, route.getSerializationLatency());
+            writer.writeByte((byte) '}');
+        }
+        writer.writeByte((byte) ']');
+        if (Objects.nonNull(startup)) {
+            writer.writeAscii(",\"startup\":");
+            writeStartup(writer, startup);
+        }
+        writer.writeByte((byte) '}');
+        return writer.toByteArray();
+    }
+
+    private static void writeStartup(JsonWriter writer, StartupReport startup) {
+        writer.writeAscii("{\"totalSeconds\":");
+        writer.writeDouble(startup.getTotalNanos() / NANOS_PER_SECOND);
+        writer.writeAscii(",\"threads\":");
+        writer.writeLong(startup.getThreads());
+        writer.writeAscii(",\"phases\":{");
+        boolean first = true;
+        for (Map.Entry<StartupReport.Phase, Long> phase : startup.getPhases().entrySet()) {
+            if (!first) {
+                writer.writeByte((byte) ',');
+            }
+            first = false;
+            writer.writeString(phase.getKey().getLabel());
+            writer.writeByte((byte) ':');
+            writer.writeDouble(phase.getValue() / NANOS_PER_SECOND);
+        }
+        writer.writeAscii("},\"instantiationSeconds\":");
+        writer.writeDouble(startup.getInstantiationNanos() / NANOS_PER_SECOND);
+        writer.writeAscii(",\"injectionSeconds\":");
+        writer.writeDouble(startup.getInjectionNanos() / NANOS_PER_SECOND);
+        writer.writeAscii(",\"beans\":[");
+        List<StartupReport.BeanTiming> beans = startup.getBeans();
+        for (int i = 0; i < beans.size(); i++) {
+            StartupReport.BeanTiming bean = beans.get(i);
+            if (i > 0) {
+                writer.writeByte((byte) ',');
+            }
+            writer.writeAscii("{\"name\":");
+            writer.writeString(bean.getName());
+            writer.writeAscii(",\"lazy\":");
+            writer.writeBoolean(bean.isLazy());
+            writer.writeAscii(",\"created\":");
+            writer.writeBoolean(bean.isCreated());
+            writer.writeAscii(",\"instantiationSeconds\":");
+            writer.writeDouble(bean.getConstructorNanos() / NANOS_PER_SECOND);
+            writer.writeAscii(",\"injectionSeconds\":");
+            writer.writeDouble(bean.getInjectionNanos() / NANOS_PER_SECOND);
+            writer.writeByte((byte) '}');
+        }
+        writer.writeAscii("]}");
+    }
+
+    // Buckets are cumulative and keyed by their upper bound in seconds, like Prometheus does
+    private static void writeHistogram(JsonWriter writer, LatencyHistogram histogram) {
+        long[] counts = histogram.getCounts();
+        long cumulative = 0;
+        writer.writeAscii("{\"buckets\":{");
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (i > 0) {
+                writer.writeByte((byte) ',');
+            }
+            writer.writeString(BUCKET_LABELS[i]);
+            writer.writeByte((byte) ':');
+            writer.writeLong(cumulative);
+        }
+        writer.writeAscii("},\"count\":");
+        writer.writeLong(cumulative);
+        writer.writeAscii(",\"sumSeconds\":");
+        writer.writeDouble(histogram.getSumNanos() / NANOS_PER_SECOND);
+        writer.writeByte((byte) '}');
+    }
+
+    static String toPrometheus(MetricsRegistry registry, StartupReport startup) {
+        List<RouteMetrics> routes = registry.getRoutes();
+        StringBuilder text = new StringBuilder(1024);
+        header(text, "winter_requests_total", "counter", "Requests dispatched to a route");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_requests_total", labels(route), route.getRequests());
+        }
+        header(text, "winter_request_errors_total", "counter", "Requests of a route that ended with an error");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_request_errors_total", labels(route), route.getErrors());
+        }
+        header(text, "winter_requests_rejected_total", "counter", "Requests of a route turned away with a 503 because of the load");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_requests_rejected_total", labels(route), route.getRejected());
+        }
+        header(text, "winter_requests_rate_limited_total", "counter", "Requests of a route turned away with a 429");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_requests_rate_limited_total", labels(route), route.getRateLimited());
+        }
+        header(text, "winter_requests_in_flight", "gauge", "Requests of a route being processed");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_requests_in_flight", labels(route), route.getInFlight());
+        }
+        header(text, "winter_cache_hits_total", "counter", "Requests of a route answered from the response cache");
+        for (RouteMetrics route : routes) {
+            sample(text, "winter_cache_hits_total", labels(route), route.getCacheHits());
+        }
+        header(text, "winter_unmatched_requests_total", "counter", "Requests without a route to handle them");
+        sample(text, "winter_unmatched_requests_total", "", registry.getUnmatched());
+        header(text, "winter_handler_duration_seconds", "histogram", "Time spent in the controller method");
+        for (RouteMetrics route : routes) {
+            histogram(text, "winter_handler_duration_seconds", labels(route), route.getHandlerLatency());
+        }
+        header(text, "winter_serialization_duration_seconds", "histogram", "Time spent writing the response");
+        for (RouteMetrics route : routes) {
+            histogram(text, "winter_serialization_duration_seconds", labels(route), route.getSerializationLatency());
+        }
+        if (Objects.nonNull(startup)) {
+            header(text, "winter_startup_phase_seconds", "gauge", "Time spent in every phase of the startup");
+            for (Map.Entry<StartupReport.Phase, Long> phase : startup.getPhases().entrySet()) {
+                sample(text, "winter_startup_phase_seconds", "phase=\"" + phase.getKey().getLabel() + "\"", phase.getValue() / NANOS_PER_SECOND);
+            }
+            header(text, "winter_bean_init_seconds", "gauge", "Time spent creating a bean and injecting its fields");
+            for (StartupReport.BeanTiming bean : startup.getBeans()) {
+                if (bean.isCreated()) {
+                    sample(text, "winter_bean_init_seconds", "bean=\"" + escape(bean.getName()) + "\"", bean.getTotalNanos() / NANOS_PER_SECOND);
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, Object value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+        long[] counts = histogram.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            sample(text, name + "_bucket", labels + ",le=\"" + BUCKET_LABELS[i] + "\"", cumulative);
+        }
+        sample(text, name + "_sum", labels, histogram.getSumNanos() / NANOS_PER_SECOND);
+        sample(text, name + "_count", labels, cumulative);
+    }
+
+    private static String[] bucketLabels() {
+        long[] bounds = LatencyHistogram.getBounds();
+        String[] labels = new String[bounds.length + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            labels[i] = BigDecimal.valueOf(bounds[i]).movePointLeft(9).stripTrailingZeros().toPlainString();
+        }
+        labels[bounds.length] = "+Inf";
+        return labels;
+    }
+
+    private static String labels(RouteMetrics route) {
+        return "method=\"" + escape(route.getHttpMethod()) + "\",route=\"" + escape(route.getTemplate()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void send(HttpExchange req, int status, String contentType, byte[] body) throws IOException {
+        req.getResponseHeaders().set("Content-Type", contentType);
+        req.sendResponseHeaders(status, body.length);
+        OutputStream os = req.getResponseBody();
+        os.write(body);
+        os.close();
+        req.close();
+    }
+}
@@ -0,0 +1,50 @@
+package encora.winterframework.server.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import encora.winterframework.context.route.Route;
+
+/**
+ * Metrics of every dispatched route
+ * Obtained through {@code ApplicationContext.getBean(MetricsRegistry.class)}, so the request handler and the
+ * metrics endpoint share the same instance.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentHashMap<Route, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private final LongAdder unmatched = new LongAdder();
+
+    public RouteMetrics forRoute(Route route) {
+        RouteMetrics metrics = routes.get(route);
+        if (Objects.isNull(metrics)) {
+            metrics = routes.computeIfAbsent(route, r -> new RouteMetrics(r.getHttpMethod(), r.getTemplate()));
+        }
+        return metrics;
+    }
+
+    /**
+     * Record a request without a route to handle it
+     */
+    public void recordUnmatched() {
+        unmatched.increment();
+    }
+
+    public long getUnmatched() {
+        return unmatched.sum();
+    }
+
+    /**
+     * @return The metrics of the routes that received requests, sorted by template and HTTP method
+     */
+    public List<RouteMetrics> getRoutes() {
+        List<RouteMetrics> metrics = new ArrayList<>(routes.values());
+        metrics.sort(Comparator.comparing(RouteMetrics::getTemplate).thenComparing(RouteMetrics::getHttpMethod));
+        return metrics;
+    }
+}
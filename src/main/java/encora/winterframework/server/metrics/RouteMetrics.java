@@ -0,0 +1,120 @@
+package encora.winterframework.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single route
+ */
+public class RouteMetrics {
+
+    private final String httpMethod;
+
+    private final String template;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private final LatencyHistogram handlerLatency = new LatencyHistogram();
+
+    private final LatencyHistogram serializationLatency = new LatencyHistogram();
+
+    RouteMetrics(String httpMethod, String template) {
+        this.httpMethod = httpMethod;
+        this.template = template;
+    }
+
+    /**
+     * Record the start of a request
+     */
+    public void begin() {
+        requests.increment();
+        inFlight.increment();
+    }
+
+    /**
+     * Record the end of a request
+     *
+     * @param failed Whether the request ended with an error
+     */
+    public void end(boolean failed) {
+        inFlight.decrement();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Record a request turned away because the route or the server was too busy
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * Record a request turned away because its client made too many
+     */
+    public void recordRateLimited() {
+        rateLimited.increment();
+    }
+
+    public void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    public void recordHandler(long nanos) {
+        handlerLatency.record(nanos);
+    }
+
+    public void recordSerialization(long nanos) {
+        serializationLatency.record(nanos);
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public LatencyHistogram getHandlerLatency() {
+        return handlerLatency;
+    }
+
+    public LatencyHistogram getSerializationLatency() {
+        return serializationLatency;
+    }
+}
@@ -0,0 +1,49 @@
+package encora.winterframework.util;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of byte arrays of the same size
+ * Arrays are created on demand when the pool is empty, and dropped when released into a full pool
+ */
+public class BufferPool {
+
+    private final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final int bufferSize;
+
+    private final int maxPooled;
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        if (Objects.isNull(buffer)) {
+            return new byte[bufferSize];
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer.length != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package encora.winterframework.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Byte buffer shared by the writers of the wire formats
+ * <p>
+ * When created with an {@link OutputStream} the buffer is flushed into it every time it gets full, so the memory
+ * used does not depend on the size of the document. Otherwise the buffer grows as needed and the document can
+ * be retrieved with {@link #toByteArray()}.
+ */
+public abstract class BufferedOutput {
+
+    private final OutputStream out;
+
+    protected byte[] buffer;
+
+    protected int count;
+
+    private boolean flushed;
+
+    /**
+     * Create an output that keeps the whole document in memory
+     *
+     * @param initialCapacity Initial size of the buffer
+     */
+    protected BufferedOutput(int initialCapacity) {
+        this.out = null;
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Create an output that flushes into a stream every time the buffer gets full
+     *
+     * @param out    The stream receiving the document
+     * @param buffer The buffer to use, can be reused once the output is not needed anymore
+     */
+    protected BufferedOutput(OutputStream out, byte[] buffer) {
+        this.out = Objects.requireNonNull(out);
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return Number of bytes waiting in the buffer
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Whether some part of the document was already flushed into the stream
+     */
+    public boolean hasFlushed() {
+        return flushed;
+    }
+
+    /**
+     * Discard the buffered bytes, so the output can be reused
+     */
+    public void reset() {
+        count = 0;
+        flushed = false;
+    }
+
+    /**
+     * Send the buffered bytes to the stream
+     * Does nothing for in-memory outputs
+     */
+    public void flush() {
+        if (Objects.nonNull(out) && count > 0) {
+            write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Copy the buffered bytes into another stream, without marking them as flushed
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * @return Copy of the buffered bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Make room for the given number of bytes, by flushing the buffer or by growing it
+     * Streamed outputs may still have less room than asked for when the length is bigger than the buffer.
+     */
+    protected void makeRoom(int length) {
+        if (Objects.nonNull(out)) {
+            flush();
+        } else {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+    }
+
+    /**
+     * Write the bytes, going straight into the stream when they don't fit in the buffer
+     */
+    protected void writeRaw(byte[] bytes, int offset, int length) {
+        if (length > buffer.length - count) {
+            makeRoom(length);
+            if (length > buffer.length - count) {
+                write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    private void write(byte[] bytes, int offset, int length) {
+        try {
+            flushed = true;
+            out.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
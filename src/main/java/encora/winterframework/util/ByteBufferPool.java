@@ -0,0 +1,51 @@
+package encora.winterframework.util;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of direct byte buffers of the same size
+ * Direct buffers are expensive to allocate and their memory is only freed by the garbage collector, so they are
+ * worth reusing even more than arrays. Buffers are cleared when acquired.
+ */
+public class ByteBufferPool {
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final int bufferSize;
+
+    private final int maxPooled;
+
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (Objects.isNull(buffer)) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
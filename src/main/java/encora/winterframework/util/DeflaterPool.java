@@ -0,0 +1,54 @@
+package encora.winterframework.util;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of deflaters with the same settings
+ * Deflaters hold native memory, so the ones released into a full pool are ended right away instead of waiting for
+ * the garbage collector.
+ */
+public class DeflaterPool {
+
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final int level;
+
+    private final boolean nowrap;
+
+    private final int maxPooled;
+
+    /**
+     * @param level     Compression level, from 1 to 9
+     * @param nowrap    Whether to skip the zlib header and checksum, as the gzip format needs
+     * @param maxPooled Maximum number of idle deflaters kept
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxPooled) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxPooled = maxPooled;
+    }
+
+    public Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        if (Objects.isNull(deflater)) {
+            return new Deflater(level, nowrap);
+        }
+        pooled.decrementAndGet();
+        return deflater;
+    }
+
+    public void release(Deflater deflater) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            deflater.reset();
+            deflaters.offer(deflater);
+        } else {
+            pooled.decrementAndGet();
+            deflater.end();
+        }
+    }
+}
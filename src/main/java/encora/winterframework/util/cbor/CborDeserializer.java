@@ -0,0 +1,302 @@
+package encora.winterframework.util.cbor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import encora.winterframework.util.json.ClassMetadata;
+import encora.winterframework.util.json.PropertyMetadata;
+import encora.winterframework.util.json.ValueKind;
+
+/**
+ * Binds the items of a {@link CborReader} into objects, following the cached {@link ClassMetadata} of each class
+ * Unknown fields are ignored, as in JSON.
+ */
+public final class CborDeserializer {
+
+    private final CborReader reader;
+
+    public CborDeserializer(CborReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param type The type of the value to read, the type arguments of collections, maps and optionals tell the
+     *             type of their elements
+     * @return The next value of the reader
+     */
+    public Object read(Type type) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        return read(ClassMetadata.rawClass(type), type);
+    }
+
+    private Object read(Class<?> raw, Type type) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        ClassMetadata metadata = ClassMetadata.of(raw);
+        if (reader.peekNull()) {
+            reader.nextNull();
+            return metadata.getKind() == ValueKind.OPTIONAL ? Optional.empty() : null;
+        }
+        switch (metadata.getKind()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case BYTE:
+                return reader.nextByte();
+            case SHORT:
+                return reader.nextShort();
+            case INT:
+                return reader.nextInt();
+            case LONG:
+                return reader.nextLong();
+            case FLOAT:
+                return (float) reader.nextDouble();
+            case DOUBLE:
+                return reader.nextDouble();
+            case CHAR:
+                return nextChar();
+            case STRING:
+                return reader.nextString();
+            case DATE:
+                return readDate();
+            case BIG_NUMBER:
+                return raw == BigInteger.class ? reader.nextBigInteger() : readBigDecimal();
+            case ENUM:
+                return metadata.enumConstant(reader.nextString());
+            case TEMPORAL:
+                return metadata.parse(reader.nextString());
+            case OPTIONAL:
+                return Optional.ofNullable(read(ClassMetadata.typeArgument(type, 0)));
+            case COLLECTION:
+                return readCollection(metadata, ClassMetadata.typeArgument(type, 0));
+            case MAP:
+                return readMap(metadata, ClassMetadata.typeArgument(type, 0), ClassMetadata.typeArgument(type, 1));
+            case ARRAY:
+                return readArray(type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : raw.getComponentType());
+            case ANY:
+                return readAny();
+            default:
+                return Modifier.isAbstract(raw.getModifiers()) ? readAny() : readObject(metadata);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection(ClassMetadata metadata, Type elementType)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Collection<Object> collection = (Collection<Object>) metadata.newContainer();
+        for (int i = 0, size = reader.beginArray(); hasNext(i, size); i++) {
+            collection.add(read(elementType));
+        }
+        reader.endContainer();
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap(ClassMetadata metadata, Type keyType, Type valueType)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Map<Object, Object> map = (Map<Object, Object>) metadata.newContainer();
+        ClassMetadata keyMetadata = ClassMetadata.of(ClassMetadata.rawClass(keyType));
+        for (int i = 0, size = reader.beginMap(); hasNext(i, size); i++) {
+            Object key = keyMetadata.parseKey(nextKey());
+            map.put(key, read(valueType));
+        }
+        reader.endContainer();
+        return map;
+    }
+
+    /**
+     * Read a value without a known type, maps with text keys, arrays as lists and numbers as Long, Double,
+     * BigInteger or BigDecimal
+     */
+    private Object readAny() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        switch (reader.peekMajor()) {
+            case CborWriter.UNSIGNED:
+            case CborWriter.NEGATIVE:
+                BigInteger integer = reader.nextBigInteger();
+                return integer.bitLength() < 64 ? (Object) integer.longValue() : (Object) integer;
+            case CborWriter.BYTES:
+                return reader.nextByteString();
+            case CborWriter.TEXT:
+                return reader.nextString();
+            case CborWriter.ARRAY:
+                return readCollection(ClassMetadata.of(List.class), Object.class);
+            case CborWriter.MAP:
+                return readMap(ClassMetadata.of(Map.class), String.class, Object.class);
+            case CborWriter.TAG:
+                return readTagged();
+            default:
+                if (reader.isFloat()) {
+                    return reader.nextDouble();
+                }
+                return reader.nextBoolean();
+        }
+    }
+
+    private Object readTagged() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        // Unknown tags are ignored, the tagged item is read as is
+        while (reader.peekMajor() == CborWriter.TAG) {
+            long tag = reader.peekTag();
+            if (tag == CborWriter.TAG_EPOCH) {
+                return readDate();
+            } else if (tag == CborWriter.TAG_POSITIVE_BIGNUM || tag == CborWriter.TAG_NEGATIVE_BIGNUM) {
+                return reader.nextBigInteger();
+            } else if (tag == CborWriter.TAG_DECIMAL_FRACTION) {
+                return readBigDecimal();
+            }
+            reader.nextTag();
+        }
+        return readAny();
+    }
+
+    private BigDecimal readBigDecimal() {
+        if (reader.peekMajor() == CborWriter.TEXT) {
+            return new BigDecimal(reader.nextString());
+        } else if (reader.isFloat()) {
+            return BigDecimal.valueOf(reader.nextDouble());
+        } else if (reader.peekMajor() != CborWriter.TAG || reader.peekTag() != CborWriter.TAG_DECIMAL_FRACTION) {
+            return new BigDecimal(reader.nextBigInteger());
+        }
+        reader.nextTag();
+        if (reader.beginArray() != 2) {
+            throw new IllegalArgumentException("A decimal fraction must have an exponent and a mantissa");
+        }
+        long exponent = reader.nextLong();
+        BigInteger mantissa = reader.nextBigInteger();
+        reader.endContainer();
+        return new BigDecimal(mantissa, Math.toIntExact(-exponent));
+    }
+
+    private Date readDate() {
+        if (reader.peekMajor() == CborWriter.TAG) {
+            long tag = reader.nextTag();
+            if (tag != CborWriter.TAG_EPOCH) {
+                throw new IllegalArgumentException("Unsupported date tag " + tag);
+            }
+        }
+        if (reader.isFloat()) {
+            return new Date(Math.round(reader.nextDouble() * 1000));
+        }
+        return new Date(reader.nextLong() * 1000);
+    }
+
+    private char nextChar() {
+        String value = reader.nextString();
+        if (value.length() != 1) {
+            throw new IllegalArgumentException("Expected a single character but found '" + value + "'");
+        }
+        return value.charAt(0);
+    }
+
+    /**
+     * Keys of other types than text are accepted as long as they are scalars
+     */
+    private String nextKey() {
+        int major = reader.peekMajor();
+        if (major == CborWriter.TEXT) {
+            return reader.nextString();
+        } else if (major == CborWriter.UNSIGNED || major == CborWriter.NEGATIVE) {
+            return reader.nextBigInteger().toString();
+        } else if (reader.isFloat()) {
+            return String.valueOf(reader.nextDouble());
+        }
+        return String.valueOf(reader.nextBoolean());
+    }
+
+    /**
+     * @return Whether an array or map of the given size, or -1 for indefinite ones, has more items after i
+     */
+    private boolean hasNext(int i, int size) {
+        if (size >= 0) {
+            return i < size;
+        }
+        if (reader.peekBreak()) {
+            reader.nextBreak();
+            return false;
+        }
+        return true;
+    }
+
+    private Object readArray(Type componentType) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Class<?> componentClass = ClassMetadata.rawClass(componentType);
+        if (componentClass == byte.class && reader.peekMajor() == CborWriter.BYTES) {
+            return reader.nextByteString();
+        }
+        List<Object> elements = new ArrayList<>();
+        for (int i = 0, size = reader.beginArray(); hasNext(i, size); i++) {
+            elements.add(read(componentType));
+        }
+        reader.endContainer();
+        if (!componentClass.isPrimitive()) {
+            return elements.toArray((Object[]) Array.newInstance(componentClass, elements.size()));
+        }
+        // Arrays of primitives are rare in binary payloads, nulls keep the default value
+        Object array = Array.newInstance(componentClass, elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            if (Objects.nonNull(elements.get(i))) {
+                Array.set(array, i, elements.get(i));
+            }
+        }
+        return array;
+    }
+
+    private Object readObject(ClassMetadata metadata) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Object instance = metadata.newInstance();
+        for (int i = 0, size = reader.beginMap(); hasNext(i, size); i++) {
+            PropertyMetadata property = metadata.getProperty(nextKey());
+            if (Objects.isNull(property)) {
+                reader.skipValue();
+            } else if (Objects.nonNull(property.getPrimitiveKind())) {
+                readPrimitive(instance, property.getField(), property.getPrimitiveKind());
+            } else {
+                property.set(instance, read(property.getType(), property.getGenericType()));
+            }
+        }
+        reader.endContainer();
+        return instance;
+    }
+
+    private void readPrimitive(Object instance, Field field, ValueKind kind) throws IllegalAccessException {
+        if (reader.peekNull()) {
+            // Keep the default value
+            reader.nextNull();
+            return;
+        }
+        switch (kind) {
+            case BOOLEAN:
+                field.setBoolean(instance, reader.nextBoolean());
+                break;
+            case BYTE:
+                field.setByte(instance, reader.nextByte());
+                break;
+            case SHORT:
+                field.setShort(instance, reader.nextShort());
+                break;
+            case INT:
+                field.setInt(instance, reader.nextInt());
+                break;
+            case LONG:
+                field.setLong(instance, reader.nextLong());
+                break;
+            case FLOAT:
+                field.setFloat(instance, (float) reader.nextDouble());
+                break;
+            case DOUBLE:
+                field.setDouble(instance, reader.nextDouble());
+                break;
+            case CHAR:
+                field.setChar(instance, nextChar());
+                break;
+            default:
+                throw new IllegalStateException("Not a primitive kind: " + kind);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package encora.winterframework.util.cbor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads CBOR (RFC 8949) data items from a byte array, one head at a time
+ * <p>
+ * Integers wider than a long, half precision floats and indefinite length strings, arrays and maps are
+ * supported. Malformed documents throw {@link IllegalArgumentException}.
+ */
+public final class CborReader {
+
+    /**
+     * Arrays and maps nested into each other, so the recursive readers and writers can't overflow the stack
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private final byte[] data;
+
+    private int position;
+
+    private int depth;
+
+    public CborReader(byte[] data) {
+        this.data = data;
+    }
+
+    public CborReader(InputStream in) {
+        this(readAll(in));
+    }
+
+    /**
+     * @return Whether every item of the document was read
+     */
+    public boolean isAtEnd() {
+        return position == data.length;
+    }
+
+    /**
+     * @return The major type of the next item, from 0 to 7
+     */
+    public int peekMajor() {
+        return (peekByte() & 0xFF) >>> 5;
+    }
+
+    /**
+     * @return Whether the next item is null or undefined
+     */
+    public boolean peekNull() {
+        int b = peekByte() & 0xFF;
+        return b == CborWriter.NULL || b == CborWriter.UNDEFINED;
+    }
+
+    /**
+     * @return Whether the next item ends an indefinite length array or map
+     */
+    public boolean peekBreak() {
+        return (peekByte() & 0xFF) == CborWriter.BREAK;
+    }
+
+    public void nextNull() {
+        if (!peekNull()) {
+            throw unexpected("null");
+        }
+        position++;
+    }
+
+    public void nextBreak() {
+        if (!peekBreak()) {
+            throw unexpected("break");
+        }
+        position++;
+    }
+
+    public boolean nextBoolean() {
+        int b = peekByte() & 0xFF;
+        if (b != CborWriter.TRUE && b != CborWriter.FALSE) {
+            throw unexpected("boolean");
+        }
+        position++;
+        return b == CborWriter.TRUE;
+    }
+
+    public long nextLong() {
+        int major = peekMajor();
+        if (major == CborWriter.UNSIGNED || major == CborWriter.NEGATIVE) {
+            long argument = nextArgument();
+            if (argument < 0) {
+                throw new IllegalArgumentException("Integer out of the range of a long at position " + position);
+            }
+            return major == CborWriter.UNSIGNED ? argument : ~argument;
+        } else if (isFloat()) {
+            double value = nextDouble();
+            if (value != (long) value) {
+                throw new IllegalArgumentException("Expected an integer but found " + value);
+            }
+            return (long) value;
+        }
+        throw unexpected("integer");
+    }
+
+    /**
+     * Read an integer of any size, plain or tagged as a bignum
+     */
+    public BigInteger nextBigInteger() {
+        int major = peekMajor();
+        if (major == CborWriter.UNSIGNED || major == CborWriter.NEGATIVE) {
+            long argument = nextArgument();
+            BigInteger value = argument < 0 ? new BigInteger(Long.toUnsignedString(argument)) : BigInteger.valueOf(argument);
+            return major == CborWriter.UNSIGNED ? value : value.not();
+        } else if (major == CborWriter.TAG) {
+            long tag = peekTag();
+            if (tag == CborWriter.TAG_POSITIVE_BIGNUM || tag == CborWriter.TAG_NEGATIVE_BIGNUM) {
+                nextTag();
+                BigInteger magnitude = new BigInteger(1, nextByteString());
+                return tag == CborWriter.TAG_POSITIVE_BIGNUM ? magnitude : magnitude.not();
+            }
+        }
+        throw unexpected("integer");
+    }
+
+    /**
+     * @return Whether the next item is a half, single or double precision float
+     */
+    public boolean isFloat() {
+        int b = peekByte() & 0xFF;
+        return b == CborWriter.HALF || b == CborWriter.FLOAT || b == CborWriter.DOUBLE;
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw new IllegalArgumentException("Integer out of the range of an int: " + value);
+        }
+        return (int) value;
+    }
+
+    public short nextShort() {
+        long value = nextLong();
+        if (value != (short) value) {
+            throw new IllegalArgumentException("Integer out of the range of a short: " + value);
+        }
+        return (short) value;
+    }
+
+    public byte nextByte() {
+        long value = nextLong();
+        if (value != (byte) value) {
+            throw new IllegalArgumentException("Integer out of the range of a byte: " + value);
+        }
+        return (byte) value;
+    }
+
+    public double nextDouble() {
+        int b = peekByte() & 0xFF;
+        switch (b) {
+            case CborWriter.HALF:
+                position++;
+                return halfToDouble(readUnsigned(2));
+            case CborWriter.FLOAT:
+                position++;
+                return Float.intBitsToFloat((int) readUnsigned(4));
+            case CborWriter.DOUBLE:
+                position++;
+                return Double.longBitsToDouble(readUnsigned(8));
+            default:
+                return nextLong();
+        }
+    }
+
+    /**
+     * Read a text string, definite or made of chunks
+     */
+    public String nextString() {
+        return new String(nextBytes(CborWriter.TEXT), StandardCharsets.UTF_8);
+    }
+
+    public byte[] nextByteString() {
+        return nextBytes(CborWriter.BYTES);
+    }
+
+    /**
+     * @return The size of the array, or -1 when it ends with a break
+     */
+    public int beginArray() {
+        return beginContainer(CborWriter.ARRAY, "array");
+    }
+
+    /**
+     * @return The number of entries of the map, or -1 when it ends with a break
+     */
+    public int beginMap() {
+        return beginContainer(CborWriter.MAP, "map");
+    }
+
+    /**
+     * Leave the current array or map once all its items, and the break of indefinite ones, were read
+     */
+    public void endContainer() {
+        depth--;
+    }
+
+    /**
+     * @return The tag number, followed by the tagged item
+     */
+    public long nextTag() {
+        if (peekMajor() != CborWriter.TAG) {
+            throw unexpected("tag");
+        }
+        return nextArgument();
+    }
+
+    /**
+     * @return The tag number of the next item, without moving past it
+     */
+    public long peekTag() {
+        int start = position;
+        long tag = nextTag();
+        position = start;
+        return tag;
+    }
+
+    /**
+     * Skip the next item, including the elements of arrays and maps and the item of tags
+     */
+    public void skipValue() {
+        int major = peekMajor();
+        int info = peekByte() & 0x1F;
+        switch (major) {
+            case CborWriter.BYTES:
+            case CborWriter.TEXT:
+                nextBytes(major);
+                break;
+            case CborWriter.ARRAY:
+            case CborWriter.MAP:
+                int size = beginContainer(major, "container");
+                int items = major == CborWriter.MAP ? 2 : 1;
+                if (size < 0) {
+                    while (!peekBreak()) {
+                        skipValue();
+                    }
+                    position++;
+                } else {
+                    for (long i = (long) size * items; i > 0; i--) {
+                        skipValue();
+                    }
+                }
+                endContainer();
+                break;
+            case CborWriter.TAG:
+                // Tags of tags are skipped in a loop, they don't count as nesting
+                while (peekMajor() == CborWriter.TAG) {
+                    nextArgument();
+                }
+                skipValue();
+                break;
+            case CborWriter.SIMPLE:
+                position++;
+                position += info == 24 ? 1 : info == 25 ? 2 : info == 26 ? 4 : info == 27 ? 8 : 0;
+                break;
+            default:
+                nextArgument();
+        }
+    }
+
+    private int beginContainer(int major, String expected) {
+        if (peekMajor() != major) {
+            throw unexpected(expected);
+        }
+        if (depth == MAX_DEPTH) {
+            throw new IllegalArgumentException("More than " + MAX_DEPTH + " nested arrays and maps at position " + position);
+        }
+        depth++;
+        if ((peekByte() & 0x1F) == CborWriter.INDEFINITE) {
+            position++;
+            return -1;
+        }
+        long size = nextArgument();
+        // Every item takes one byte at least, so a bigger size cannot be honest
+        if (size < 0 || size > data.length - position) {
+            throw new IllegalArgumentException("Size out of bounds: " + size);
+        }
+        return (int) size;
+    }
+
+    private byte[] nextBytes(int major) {
+        if (peekMajor() != major) {
+            throw unexpected(major == CborWriter.TEXT ? "text string" : "byte string");
+        }
+        if ((peekByte() & 0x1F) != CborWriter.INDEFINITE) {
+            int length = length(nextArgument());
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+        position++;
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        while (!peekBreak()) {
+            if (peekMajor() != major || (peekByte() & 0x1F) == CborWriter.INDEFINITE) {
+                throw unexpected("definite string chunk");
+            }
+            int length = length(nextArgument());
+            chunks.write(data, position, length);
+            position += length;
+        }
+        position++;
+        return chunks.toByteArray();
+    }
+
+    private int length(long length) {
+        if (length < 0 || length > data.length - position) {
+            throw new IllegalArgumentException("Length out of bounds: " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * @return The argument of the next head, negative when it does not fit in a long
+     */
+    private long nextArgument() {
+        int info = (peekByte() & 0xFF) & 0x1F;
+        position++;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return readUnsigned(1);
+            case 25:
+                return readUnsigned(2);
+            case 26:
+                return readUnsigned(4);
+            case 27:
+                return readUnsigned(8);
+            default:
+                throw new IllegalArgumentException("Unexpected additional information " + info + " at position " + (position - 1));
+        }
+    }
+
+    private long readUnsigned(int bytes) {
+        if (data.length - position < bytes) {
+            throw new IllegalArgumentException("Unexpected end of the document");
+        }
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (data[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private byte peekByte() {
+        if (position >= data.length) {
+            throw new IllegalArgumentException("Unexpected end of the document");
+        }
+        return data[position];
+    }
+
+    private IllegalArgumentException unexpected(String expected) {
+        return new IllegalArgumentException(String.format("Expected %s but found 0x%02X at position %d",
+            expected, peekByte() & 0xFF, position));
+    }
+
+    private static double halfToDouble(long bits) {
+        int exponent = (int) (bits >> 10) & 0x1F;
+        int mantissa = (int) bits & 0x3FF;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (bits & 0x8000) == 0 ? value : -value;
+    }
+
+    private static byte[] readAll(InputStream in) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package encora.winterframework.util.cbor;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import encora.winterframework.util.json.ClassMetadata;
+import encora.winterframework.util.json.PropertyMetadata;
+import encora.winterframework.util.json.ValueKind;
+
+/**
+ * Serializes a graph of objects into a {@link CborWriter}, following the same {@link ClassMetadata} as the JSON
+ * serializer, so both formats carry the same fields
+ * <p>
+ * Objects and maps are written as CBOR maps with text keys, byte arrays as byte strings, dates with the epoch tag
+ * and big numbers with the bignum and decimal fraction tags. An instance is meant for a single call, it keeps
+ * track of the objects being written to detect cycles and graphs nested too deep.
+ */
+public final class CborSerializer {
+
+    // Names of the properties of every class, encoded once as CBOR text strings
+    private static final ClassValue<byte[][]> NAMES = new ClassValue<byte[][]>() {
+        @Override
+        protected byte[][] computeValue(Class<?> type) {
+            List<PropertyMetadata> properties = ClassMetadata.of(type).getProperties();
+            byte[][] names = new byte[properties.size()][];
+            for (int i = 0; i < names.length; i++) {
+                CborWriter writer = new CborWriter(properties.get(i).getName().length() + 9);
+                writer.writeString(properties.get(i).getName());
+                names[i] = writer.toByteArray();
+            }
+            return names;
+        }
+    };
+
+    private final CborWriter writer;
+
+    private final int maxDepth;
+
+    // Objects being written, from the root to the current one
+    private Object[] path;
+
+    private int depth;
+
+    /**
+     * @param writer   The writer receiving the CBOR
+     * @param maxDepth Maximum number of objects, collections, maps and arrays nested into each other
+     */
+    public CborSerializer(CborWriter writer, int maxDepth) {
+        this.writer = writer;
+        this.maxDepth = maxDepth;
+        this.path = new Object[Math.min(maxDepth, 16)];
+    }
+
+    public void write(Object value) throws IllegalAccessException {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+        ClassMetadata metadata = ClassMetadata.of(value.getClass());
+        switch (metadata.getKind()) {
+            case BOOLEAN:
+                writer.writeBoolean((Boolean) value);
+                break;
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                writer.writeLong(((Number) value).longValue());
+                break;
+            case FLOAT:
+                writer.writeFloat((Float) value);
+                break;
+            case DOUBLE:
+                writer.writeDouble((Double) value);
+                break;
+            case CHAR:
+            case STRING:
+            case TEMPORAL:
+                writer.writeString(value.toString());
+                break;
+            case DATE:
+                writeDate((Date) value);
+                break;
+            case BIG_NUMBER:
+                if (value instanceof BigInteger) {
+                    writeBigInteger((BigInteger) value);
+                } else {
+                    writeBigDecimal((BigDecimal) value);
+                }
+                break;
+            case ENUM:
+                writer.writeString(((Enum<?>) value).name());
+                break;
+            case OPTIONAL:
+                write(((Optional<?>) value).orElse(null));
+                break;
+            case COLLECTION:
+                writeCollection((Collection<?>) value);
+                break;
+            case MAP:
+                writeMap((Map<?, ?>) value);
+                break;
+            case ARRAY:
+                writeArray(value);
+                break;
+            default:
+                writeObject(value, metadata);
+        }
+    }
+
+    private void writeDate(Date date) {
+        long millis = date.getTime();
+        writer.writeTag(CborWriter.TAG_EPOCH);
+        if (millis % 1000 == 0) {
+            writer.writeLong(millis / 1000);
+        } else {
+            writer.writeDouble(millis / 1000.0);
+        }
+    }
+
+    private void writeBigInteger(BigInteger value) {
+        if (value.bitLength() < 64) {
+            writer.writeLong(value.longValue());
+            return;
+        }
+        byte[] magnitude;
+        if (value.signum() >= 0) {
+            writer.writeTag(CborWriter.TAG_POSITIVE_BIGNUM);
+            magnitude = value.toByteArray();
+        } else {
+            writer.writeTag(CborWriter.TAG_NEGATIVE_BIGNUM);
+            magnitude = value.negate().subtract(BigInteger.ONE).toByteArray();
+        }
+        // toByteArray() adds a leading zero for the sign bit, bignums are unsigned
+        if (magnitude[0] == 0) {
+            byte[] trimmed = new byte[magnitude.length - 1];
+            System.arraycopy(magnitude, 1, trimmed, 0, trimmed.length);
+            magnitude = trimmed;
+        }
+        writer.writeByteString(magnitude);
+    }
+
+    /**
+     * Written as [exponent, mantissa], so the value is mantissa * 10^exponent without losing precision
+     */
+    private void writeBigDecimal(BigDecimal value) {
+        writer.writeTag(CborWriter.TAG_DECIMAL_FRACTION);
+        writer.beginArray(2);
+        writer.writeLong(-value.scale());
+        writeBigInteger(value.unscaledValue());
+    }
+
+    private void writeCollection(Collection<?> collection) throws IllegalAccessException {
+        enter(collection);
+        // The size of concurrent collections may change while iterating them
+        writer.beginIndefiniteArray();
+        for (Object element : collection) {
+            write(element);
+        }
+        writer.writeBreak();
+        depth--;
+    }
+
+    /**
+     * Keys are written as text, like in JSON
+     */
+    private void writeMap(Map<?, ?> map) throws IllegalAccessException {
+        enter(map);
+        int size = map.size();
+        int written = 0;
+        writer.beginMap(size);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (written++ == size) {
+                throw new IllegalStateException("The map changed while writing it");
+            }
+            Object key = entry.getKey();
+            writer.writeString(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key));
+            write(entry.getValue());
+        }
+        if (written != size) {
+            throw new IllegalStateException("The map changed while writing it");
+        }
+        depth--;
+    }
+
+    /**
+     * Arrays of primitives are written with a loop of their own, so the elements are never boxed
+     */
+    private void writeArray(Object array) throws IllegalAccessException {
+        if (array instanceof byte[]) {
+            writer.writeByteString((byte[]) array);
+        } else if (array instanceof Object[]) {
+            // Only arrays of objects can contain themselves
+            enter(array);
+            Object[] elements = (Object[]) array;
+            writer.beginArray(elements.length);
+            for (Object element : elements) {
+                write(element);
+            }
+            depth--;
+        } else if (array instanceof int[]) {
+            int[] elements = (int[]) array;
+            writer.beginArray(elements.length);
+            for (int element : elements) {
+                writer.writeLong(element);
+            }
+        } else if (array instanceof long[]) {
+            long[] elements = (long[]) array;
+            writer.beginArray(elements.length);
+            for (long element : elements) {
+                writer.writeLong(element);
+            }
+        } else if (array instanceof double[]) {
+            double[] elements = (double[]) array;
+            writer.beginArray(elements.length);
+            for (double element : elements) {
+                writer.writeDouble(element);
+            }
+        } else if (array instanceof float[]) {
+            float[] elements = (float[]) array;
+            writer.beginArray(elements.length);
+            for (float element : elements) {
+                writer.writeFloat(element);
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] elements = (boolean[]) array;
+            writer.beginArray(elements.length);
+            for (boolean element : elements) {
+                writer.writeBoolean(element);
+            }
+        } else if (array instanceof short[]) {
+            short[] elements = (short[]) array;
+            writer.beginArray(elements.length);
+            for (short element : elements) {
+                writer.writeLong(element);
+            }
+        } else {
+            char[] elements = (char[]) array;
+            writer.beginArray(elements.length);
+            for (char element : elements) {
+                writer.writeString(String.valueOf(element));
+            }
+        }
+    }
+
+    private void writeObject(Object o, ClassMetadata metadata) throws IllegalAccessException {
+        enter(o);
+        List<PropertyMetadata> properties = metadata.getProperties();
+        byte[][] names = NAMES.get(metadata.getType());
+        writer.beginMap(names.length);
+        for (int i = 0; i < names.length; i++) {
+            PropertyMetadata property = properties.get(i);
+            writer.writeEncoded(names[i]);
+            ValueKind primitiveKind = property.getPrimitiveKind();
+            if (Objects.isNull(primitiveKind)) {
+                write(property.get(o));
+            } else {
+                writePrimitive(o, property.getField(), primitiveKind);
+            }
+        }
+        depth--;
+    }
+
+    private void writePrimitive(Object o, Field field, ValueKind kind) throws IllegalAccessException {
+        switch (kind) {
+            case BOOLEAN:
+                writer.writeBoolean(field.getBoolean(o));
+                break;
+            case BYTE:
+            case SHORT:
+            case INT:
+                writer.writeLong(field.getInt(o));
+                break;
+            case LONG:
+                writer.writeLong(field.getLong(o));
+                break;
+            case FLOAT:
+                writer.writeFloat(field.getFloat(o));
+                break;
+            case DOUBLE:
+                writer.writeDouble(field.getDouble(o));
+                break;
+            case CHAR:
+                writer.writeString(String.valueOf(field.getChar(o)));
+                break;
+            default:
+                throw new IllegalStateException("Not a primitive kind: " + kind);
+        }
+    }
+
+    private void enter(Object o) {
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == o) {
+                throw new IllegalStateException(
+                    String.format("Cycle detected, object of '%s' references itself through its fields.", o.getClass()));
+            }
+        }
+        if (depth == maxDepth) {
+            throw new IllegalStateException(
+                String.format("Depth limit reached, found more than %d nested values at '%s'.", maxDepth, o.getClass()));
+        }
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, Math.min(depth * 2, maxDepth));
+        }
+        path[depth++] = o;
+    }
+}
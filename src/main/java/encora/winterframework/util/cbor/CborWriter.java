@@ -0,0 +1,262 @@
+package encora.winterframework.util.cbor;
+
+import java.io.OutputStream;
+
+import encora.winterframework.util.BufferedOutput;
+
+/**
+ * Writes CBOR (RFC 8949) data items into a byte buffer
+ * <p>
+ * When created with an {@link OutputStream} the buffer is flushed into it every time it gets full, so the memory
+ * used does not depend on the size of the document. Otherwise the buffer grows as needed and the document can
+ * be retrieved with {@link #toByteArray()}.
+ * <p>
+ * The writer does not validate the structure of the document, the caller is in charge of writing as many items
+ * as announced by the arrays and maps.
+ */
+public final class CborWriter extends BufferedOutput {
+
+    static final int UNSIGNED = 0;
+
+    static final int NEGATIVE = 1;
+
+    static final int BYTES = 2;
+
+    static final int TEXT = 3;
+
+    static final int ARRAY = 4;
+
+    static final int MAP = 5;
+
+    static final int TAG = 6;
+
+    static final int SIMPLE = 7;
+
+    static final int FALSE = 0xF4;
+
+    static final int TRUE = 0xF5;
+
+    static final int NULL = 0xF6;
+
+    static final int UNDEFINED = 0xF7;
+
+    static final int HALF = 0xF9;
+
+    static final int FLOAT = 0xFA;
+
+    static final int DOUBLE = 0xFB;
+
+    static final int BREAK = 0xFF;
+
+    // Additional information of the heads announcing indefinite lengths
+    static final int INDEFINITE = 31;
+
+    static final long TAG_EPOCH = 1;
+
+    static final long TAG_POSITIVE_BIGNUM = 2;
+
+    static final long TAG_NEGATIVE_BIGNUM = 3;
+
+    static final long TAG_DECIMAL_FRACTION = 4;
+
+    /**
+     * Create a writer that keeps the whole document in memory
+     *
+     * @param initialCapacity Initial size of the buffer
+     */
+    public CborWriter(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Create a writer that flushes into a stream every time the buffer gets full
+     *
+     * @param out    The stream receiving the document
+     * @param buffer The buffer to use, can be reused once the writer is not needed anymore
+     */
+    public CborWriter(OutputStream out, byte[] buffer) {
+        super(out, buffer);
+    }
+
+    /**
+     * Write the head of a data item, with the shortest encoding of its argument
+     *
+     * @param major    The major type, from 0 to 7
+     * @param argument The argument of the head, read as unsigned
+     */
+    public CborWriter writeHead(int major, long argument) {
+        if (buffer.length - count < 9) {
+            makeRoom(9);
+        }
+        int type = major << 5;
+        if (argument >= 0 && argument < 24) {
+            buffer[count++] = (byte) (type | argument);
+        } else if (argument >= 0 && argument < 0x100) {
+            buffer[count++] = (byte) (type | 24);
+            buffer[count++] = (byte) argument;
+        } else if (argument >= 0 && argument < 0x10000) {
+            buffer[count++] = (byte) (type | 25);
+            buffer[count++] = (byte) (argument >> 8);
+            buffer[count++] = (byte) argument;
+        } else if (argument >= 0 && argument < 0x100000000L) {
+            buffer[count++] = (byte) (type | 26);
+            writeInt((int) argument);
+        } else {
+            buffer[count++] = (byte) (type | 27);
+            writeInt((int) (argument >>> 32));
+            writeInt((int) argument);
+        }
+        return this;
+    }
+
+    public CborWriter writeLong(long value) {
+        // Negative integers are encoded as -1 - value, which is the same as flipping the bits
+        return value >= 0 ? writeHead(UNSIGNED, value) : writeHead(NEGATIVE, ~value);
+    }
+
+    /**
+     * Doubles that fit in a float without losing precision are written as floats
+     */
+    public CborWriter writeDouble(double value) {
+        float single = (float) value;
+        if (single == value) {
+            return writeFloat(single);
+        }
+        if (buffer.length - count < 9) {
+            makeRoom(9);
+        }
+        long bits = Double.doubleToLongBits(value);
+        buffer[count++] = (byte) DOUBLE;
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+        return this;
+    }
+
+    public CborWriter writeFloat(float value) {
+        if (buffer.length - count < 5) {
+            makeRoom(5);
+        }
+        buffer[count++] = (byte) FLOAT;
+        writeInt(Float.floatToIntBits(value));
+        return this;
+    }
+
+    public CborWriter writeBoolean(boolean value) {
+        return writeByte(value ? TRUE : FALSE);
+    }
+
+    public CborWriter writeNull() {
+        return writeByte(NULL);
+    }
+
+    /**
+     * Write a text string, encoded as UTF-8 straight into the buffer
+     */
+    public CborWriter writeString(CharSequence s) {
+        int length = s.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, written as '?'
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeHead(TEXT, utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (buffer.length - count < 4) {
+                makeRoom(4);
+            }
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write a byte string
+     */
+    public CborWriter writeByteString(byte[] bytes) {
+        writeHead(BYTES, bytes.length);
+        writeRaw(bytes, 0, bytes.length);
+        return this;
+    }
+
+    /**
+     * Write the head of an array, followed by its elements
+     */
+    public CborWriter beginArray(int size) {
+        return writeHead(ARRAY, size);
+    }
+
+    /**
+     * Write the head of a map, followed by its keys and values
+     */
+    public CborWriter beginMap(int size) {
+        return writeHead(MAP, size);
+    }
+
+    /**
+     * Write the head of an array whose size is unknown, ended by {@link #writeBreak()}
+     */
+    public CborWriter beginIndefiniteArray() {
+        return writeByte((ARRAY << 5) | INDEFINITE);
+    }
+
+    public CborWriter writeBreak() {
+        return writeByte(BREAK);
+    }
+
+    public CborWriter writeTag(long tag) {
+        return writeHead(TAG, tag);
+    }
+
+    /**
+     * Write bytes that are already encoded, i.e. the cached names of the properties
+     */
+    public CborWriter writeEncoded(byte[] bytes) {
+        writeRaw(bytes, 0, bytes.length);
+        return this;
+    }
+
+    private CborWriter writeByte(int b) {
+        if (count == buffer.length) {
+            makeRoom(1);
+        }
+        buffer[count++] = (byte) b;
+        return this;
+    }
+
+    private void writeInt(int value) {
+        buffer[count++] = (byte) (value >> 24);
+        buffer[count++] = (byte) (value >> 16);
+        buffer[count++] = (byte) (value >> 8);
+        buffer[count++] = (byte) value;
+    }
+}
@@ -0,0 +1,330 @@
+package encora.winterframework.util.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import encora.winterframework.annotation.JsonCodec;
+
+/**
+ * Everything the codecs need to know about a class, computed once per class and cached for the lifetime of the class
+ */
+public final class ClassMetadata {
+
+    private static final ClassValue<ClassMetadata> CACHE = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(Class<?> type) {
+            return new ClassMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final ValueKind kind;
+
+    private final PropertyMetadata[] properties;
+
+    private final Map<String, PropertyMetadata> propertiesByName;
+
+    private final Constructor<?> constructor;
+
+    // Constants by name, only for enums
+    private final Map<String, Object> enumConstants;
+
+    // Static parse(CharSequence) method, only for java.time types
+    private final Method parser;
+
+    // Generated at compile time, null if the class has none
+    private final ObjectCodec<Object> codec;
+
+    private ClassMetadata(Class<?> type) {
+        this.type = type;
+        this.kind = ValueKind.of(type);
+        this.properties = kind == ValueKind.OBJECT ? findProperties(type) : new PropertyMetadata[0];
+        this.propertiesByName = new HashMap<>(properties.length * 2);
+        for (PropertyMetadata property : properties) {
+            propertiesByName.put(property.getName(), property);
+        }
+        boolean instantiable = kind == ValueKind.OBJECT || kind == ValueKind.COLLECTION || kind == ValueKind.MAP;
+        this.constructor = instantiable ? findConstructor(type) : null;
+        this.enumConstants = kind == ValueKind.ENUM ? findEnumConstants(type) : null;
+        this.parser = kind == ValueKind.TEMPORAL ? findParser(type) : null;
+        this.codec = kind == ValueKind.OBJECT && type.isAnnotationPresent(JsonCodec.class) ? findCodec(type) : null;
+    }
+
+    public static ClassMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public ValueKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The serializable fields, starting with the ones declared by the superclasses
+     */
+    public List<PropertyMetadata> getProperties() {
+        return Arrays.asList(properties);
+    }
+
+    PropertyMetadata[] properties() {
+        return properties;
+    }
+
+    /**
+     * @param name Name of the field
+     * @return The property for the field, or null if there's no serializable field with that name
+     */
+    public PropertyMetadata getProperty(String name) {
+        return propertiesByName.get(name);
+    }
+
+    /**
+     * @return A new instance of the class, created with its no-arguments constructor
+     */
+    public Object newInstance() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (Objects.isNull(constructor)) {
+            throw new InstantiationException("Class " + type.getName() + " has no constructor without arguments");
+        }
+        return constructor.newInstance();
+    }
+
+    /**
+     * @return The codec generated for the class, or null if it has to be serialized with reflection
+     */
+    public ObjectCodec<Object> getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return Whether the class can be created with {@link #newInstance()}
+     */
+    public boolean isInstantiable() {
+        return Objects.nonNull(constructor);
+    }
+
+    /**
+     * @param name Name of the constant
+     * @return The constant of the enum with that name
+     */
+    public Object enumConstant(String name) {
+        Object constant = enumConstants.get(name);
+        if (Objects.isNull(constant)) {
+            throw new IllegalArgumentException("No constant '" + name + "' in " + type.getName());
+        }
+        return constant;
+    }
+
+    /**
+     * @param text The ISO-8601 representation of a java.time value
+     * @return The value of this class represented by the text
+     */
+    public Object parse(String text) {
+        if (Objects.isNull(parser)) {
+            throw new IllegalArgumentException("Cannot read values of " + type.getName() + " from JSON");
+        }
+        try {
+            return parser.invoke(null, text);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Malformed " + type.getSimpleName() + " '" + text + "'", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Interfaces get the usual implementation, i.e. ArrayList for List, and classes are created as they are
+     */
+    public Object newContainer() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (isInstantiable()) {
+            return newInstance();
+        }
+        if (type.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<>();
+        } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+            return new LinkedHashSet<>();
+        } else if (type.isAssignableFrom(TreeSet.class)) {
+            return new TreeSet<>();
+        } else if (type.isAssignableFrom(ArrayDeque.class)) {
+            return new ArrayDeque<>();
+        } else if (type.isAssignableFrom(LinkedHashMap.class)) {
+            return new LinkedHashMap<>();
+        } else if (type.isAssignableFrom(TreeMap.class)) {
+            return new TreeMap<>();
+        } else if (type.isAssignableFrom(ConcurrentHashMap.class)) {
+            return new ConcurrentHashMap<>();
+        }
+        throw new InstantiationException("No implementation known for " + type.getName());
+    }
+
+    /**
+     * @param name Name of a JSON member
+     * @return The map key of this class represented by the name
+     */
+    public Object parseKey(String name) {
+        try {
+            switch (kind) {
+                case STRING:
+                case ANY:
+                    return name;
+                case BOOLEAN:
+                    return Boolean.valueOf(name);
+                case BYTE:
+                    return Byte.valueOf(name);
+                case SHORT:
+                    return Short.valueOf(name);
+                case INT:
+                    return Integer.valueOf(name);
+                case LONG:
+                    return Long.valueOf(name);
+                case FLOAT:
+                    return Float.valueOf(name);
+                case DOUBLE:
+                    return Double.valueOf(name);
+                case BIG_NUMBER:
+                    return parseBigNumber(name);
+                case ENUM:
+                    return enumConstant(name);
+                case TEMPORAL:
+                    return parse(name);
+                default:
+                    throw new IllegalArgumentException("Maps with keys of " + type.getName() + " are not supported");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed key '" + name + "' for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @param value The text of a number
+     * @return The BigDecimal or BigInteger represented by the text, as this class
+     */
+    public Object parseBigNumber(String value) {
+        try {
+            return type == BigInteger.class ? new BigInteger(value) : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number '" + value + "'", e);
+        }
+    }
+
+    /**
+     * @return The class of the type, without its type arguments
+     */
+    public static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable) {
+            return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * @return The type argument at the index, or Object if the type is raw
+     */
+    public static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * The class may have been compiled without the annotation processor, in which case there's no codec
+     */
+    @SuppressWarnings("unchecked")
+    private static ObjectCodec<Object> findCodec(Class<?> type) {
+        try {
+            Class<?> codecClass = Class.forName(type.getName() + ObjectCodec.SUFFIX, true, type.getClassLoader());
+            return (ObjectCodec<Object>) codecClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Cannot create the generated codec of " + type.getName(), e);
+        }
+    }
+
+    private static Map<String, Object> findEnumConstants(Class<?> type) {
+        // Constants with a body are subclasses of the enum
+        Class<?> enumType = type.isEnum() ? type : type.getSuperclass();
+        Map<String, Object> constants = new HashMap<>();
+        for (Object constant : enumType.getEnumConstants()) {
+            constants.put(((Enum<?>) constant).name(), constant);
+        }
+        return constants;
+    }
+
+    private static Method findParser(Class<?> type) {
+        try {
+            Method parser = type.getMethod("parse", CharSequence.class);
+            return Modifier.isStatic(parser.getModifiers()) && type.isAssignableFrom(parser.getReturnType()) ? parser : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static PropertyMetadata[] findProperties(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<PropertyMetadata> properties = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    properties.add(new PropertyMetadata(field));
+                }
+            }
+        }
+        return properties.toArray(new PropertyMetadata[0]);
+    }
+}
@@ -0,0 +1,330 @@
+package encora.winterframework.util.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Binds the tokens of a {@link JsonReader} into objects, following the cached {@link ClassMetadata} of each class
+ * Unknown fields in the JSON are ignored.
+ */
+public final class JsonDeserializer {
+
+    // Format used by Date.toString(), which is how dates are serialized
+    private static final String DATE_FORMAT = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    private final JsonReader reader;
+
+    public JsonDeserializer(JsonReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param type The class of the value to read
+     * @return The next value of the reader
+     */
+    public Object read(Class<?> type) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        return read(type, type);
+    }
+
+    /**
+     * @param type The type of the value to read, the type arguments of collections, maps and optionals tell the
+     *             type of their elements
+     * @return The next value of the reader
+     */
+    public Object read(Type type) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        return read(ClassMetadata.rawClass(type), type);
+    }
+
+    private Object read(Class<?> raw, Type type) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        ClassMetadata metadata = ClassMetadata.of(raw);
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return metadata.getKind() == ValueKind.OPTIONAL ? Optional.empty() : null;
+        }
+        switch (metadata.getKind()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case BYTE:
+                return reader.nextByte();
+            case SHORT:
+                return reader.nextShort();
+            case INT:
+                return reader.nextInt();
+            case LONG:
+                return reader.nextLong();
+            case FLOAT:
+                return (float) reader.nextDouble();
+            case DOUBLE:
+                return reader.nextDouble();
+            case CHAR:
+                return reader.nextChar();
+            case STRING:
+                return reader.nextString();
+            case DATE:
+                return readDate();
+            case BIG_NUMBER:
+                return metadata.parseBigNumber(reader.nextString());
+            case ENUM:
+                return metadata.enumConstant(reader.nextString());
+            case TEMPORAL:
+                return metadata.parse(reader.nextString());
+            case OPTIONAL:
+                return Optional.ofNullable(read(ClassMetadata.typeArgument(type, 0)));
+            case COLLECTION:
+                return readCollection(metadata, ClassMetadata.typeArgument(type, 0));
+            case MAP:
+                return readMap(metadata, ClassMetadata.typeArgument(type, 0), ClassMetadata.typeArgument(type, 1));
+            case ARRAY:
+                return readArray(type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : raw.getComponentType());
+            case ANY:
+                return readAny();
+            default:
+                // i.e. Number or Comparable, whatever the JSON has may fit
+                return Modifier.isAbstract(raw.getModifiers()) ? readAny() : readObject(metadata);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection(ClassMetadata metadata, Type elementType)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Collection<Object> collection = (Collection<Object>) metadata.newContainer();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            collection.add(read(elementType));
+        }
+        reader.endArray();
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap(ClassMetadata metadata, Type keyType, Type valueType)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Map<Object, Object> map = (Map<Object, Object>) metadata.newContainer();
+        ClassMetadata keyMetadata = ClassMetadata.of(ClassMetadata.rawClass(keyType));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Object key = keyMetadata.parseKey(reader.nextName());
+            map.put(key, read(valueType));
+        }
+        reader.endObject();
+        return map;
+    }
+
+    /**
+     * Read a value without a known type, objects as maps, arrays as lists and numbers as Long or Double
+     */
+    private Object readAny() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readMap(ClassMetadata.of(Map.class), String.class, Object.class);
+            case BEGIN_ARRAY:
+                return readCollection(ClassMetadata.of(List.class), Object.class);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                String number = reader.nextString();
+                try {
+                    boolean integral = number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0;
+                    return integral ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+                } catch (NumberFormatException e) {
+                    return ClassMetadata.of(BigDecimal.class).parseBigNumber(number);
+                }
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Arrays of primitives are read with a loop of their own, so the elements are never boxed
+     */
+    private Object readArray(Type componentType) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        Class<?> componentClass = ClassMetadata.rawClass(componentType);
+        if (componentClass.isPrimitive()) {
+            return readPrimitiveArray(componentClass);
+        }
+        List<Object> elements = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            elements.add(read(componentType));
+        }
+        reader.endArray();
+        return elements.toArray((Object[]) Array.newInstance(componentClass, elements.size()));
+    }
+
+    private Object readPrimitiveArray(Class<?> componentClass) {
+        reader.beginArray();
+        int length = 0;
+        Object array;
+        if (componentClass == int.class) {
+            int[] elements = new int[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextInt() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == long.class) {
+            long[] elements = new long[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextLong() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == double.class) {
+            double[] elements = new double[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextDouble() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == float.class) {
+            float[] elements = new float[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? (float) reader.nextDouble() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == boolean.class) {
+            boolean[] elements = new boolean[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() && reader.nextBoolean();
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == byte.class) {
+            byte[] elements = new byte[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextByte() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else if (componentClass == short.class) {
+            short[] elements = new short[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextShort() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        } else {
+            char[] elements = new char[16];
+            for (; reader.hasNext(); length++) {
+                if (length == elements.length) {
+                    elements = Arrays.copyOf(elements, length * 2);
+                }
+                elements[length] = nextPrimitive() ? reader.nextChar() : 0;
+            }
+            array = Arrays.copyOf(elements, length);
+        }
+        reader.endArray();
+        return array;
+    }
+
+    /**
+     * @return Whether the next element of a primitive array has a value, nulls are read as the default value
+     */
+    private boolean nextPrimitive() {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        return true;
+    }
+
+    private Object readObject(ClassMetadata metadata) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        ObjectCodec<Object> codec = metadata.getCodec();
+        if (Objects.nonNull(codec)) {
+            return codec.read(this, reader);
+        }
+        Object instance = metadata.newInstance();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            PropertyMetadata property = metadata.getProperty(reader.nextName());
+            if (Objects.isNull(property)) {
+                reader.skipValue();
+            } else if (Objects.nonNull(property.getPrimitiveKind())) {
+                readPrimitive(instance, property.getField(), property.getPrimitiveKind());
+            } else {
+                property.set(instance, read(property.getType(), property.getGenericType()));
+            }
+        }
+        reader.endObject();
+        return instance;
+    }
+
+    private void readPrimitive(Object instance, Field field, ValueKind kind) throws IllegalAccessException {
+        if (reader.peek() == JsonToken.NULL) {
+            // Keep the default value
+            reader.nextNull();
+            return;
+        }
+        switch (kind) {
+            case BOOLEAN:
+                field.setBoolean(instance, reader.nextBoolean());
+                break;
+            case BYTE:
+                field.setByte(instance, reader.nextByte());
+                break;
+            case SHORT:
+                field.setShort(instance, reader.nextShort());
+                break;
+            case INT:
+                field.setInt(instance, reader.nextInt());
+                break;
+            case LONG:
+                field.setLong(instance, reader.nextLong());
+                break;
+            case FLOAT:
+                field.setFloat(instance, (float) reader.nextDouble());
+                break;
+            case DOUBLE:
+                field.setDouble(instance, reader.nextDouble());
+                break;
+            case CHAR:
+                field.setChar(instance, reader.nextChar());
+                break;
+            default:
+                throw new IllegalStateException("Not a primitive kind: " + kind);
+        }
+    }
+
+    private Date readDate() {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return new Date(reader.nextLong());
+        }
+        String value = reader.nextString();
+        try {
+            return new SimpleDateFormat(DATE_FORMAT, Locale.US).parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Malformed date '" + value + "'", e);
+        }
+    }
+}
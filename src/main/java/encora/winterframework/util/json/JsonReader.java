@@ -0,0 +1,539 @@
+package encora.winterframework.util.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Pull parser reading JSON tokens from a single pass over the input
+ * <p>
+ * The caller walks the document with {@link #peek()} and the begin/end/next methods, i.e.
+ * <pre>
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         String name = reader.nextName();
+ *         long value = reader.nextLong();
+ *     }
+ *     reader.endObject();
+ * </pre>
+ * Malformed documents are reported with an {@link IllegalArgumentException} that includes the offset of the error.
+ */
+public final class JsonReader {
+
+    private static final int EMPTY_DOCUMENT = 0;
+
+    private static final int NONEMPTY_DOCUMENT = 1;
+
+    private static final int EMPTY_ARRAY = 2;
+
+    private static final int NONEMPTY_ARRAY = 3;
+
+    private static final int EMPTY_OBJECT = 4;
+
+    private static final int DANGLING_NAME = 5;
+
+    private static final int NONEMPTY_OBJECT = 6;
+
+    /**
+     * Arrays and objects nested into each other, so the recursive readers and writers can't overflow the stack
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private final Reader in;
+
+    private char[] buffer;
+
+    private int pos;
+
+    private int limit;
+
+    // Offset of the buffer start in the input, only used for error messages
+    private int consumed;
+
+    private int[] scopes = new int[32];
+
+    private int depth = 1;
+
+    private JsonToken peeked;
+
+    // Characters of the last string or number, reused between tokens
+    private char[] scratch = new char[64];
+
+    private int scratchLength;
+
+    public JsonReader(Reader in) {
+        this.in = Objects.requireNonNull(in);
+        this.buffer = new char[4096];
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    public JsonReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public JsonReader(byte[] json) {
+        // Decoding it at once is much cheaper than going through a reader
+        this(new String(json, StandardCharsets.UTF_8));
+    }
+
+    public JsonReader(String json) {
+        this.in = null;
+        this.buffer = json.toCharArray();
+        this.limit = buffer.length;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @return The type of the next token, without consuming it
+     */
+    public JsonToken peek() {
+        if (Objects.nonNull(peeked)) {
+            return peeked;
+        }
+        int scope = scopes[depth - 1];
+        char c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = JsonToken.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = JsonToken.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                pos++;
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = JsonToken.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    pos++;
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a quoted name");
+                }
+                scopes[depth - 1] = DANGLING_NAME;
+                return peeked = JsonToken.NAME;
+            case DANGLING_NAME:
+                scopes[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                pos++;
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_DOCUMENT:
+                scopes[depth - 1] = NONEMPTY_DOCUMENT;
+                c = nextNonWhitespace();
+                break;
+            default:
+                if (nextNonWhitespaceOrEnd() < 0) {
+                    return peeked = JsonToken.END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected content after the document");
+        }
+        return peeked = valueToken(c);
+    }
+
+    private JsonToken valueToken(char c) {
+        switch (c) {
+            case '{':
+                return JsonToken.BEGIN_OBJECT;
+            case '[':
+                return JsonToken.BEGIN_ARRAY;
+            case '"':
+                return JsonToken.STRING;
+            case 't':
+            case 'f':
+                return JsonToken.BOOLEAN;
+            case 'n':
+                return JsonToken.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return JsonToken.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + c + "'");
+        }
+    }
+
+    public void beginObject() {
+        expect(JsonToken.BEGIN_OBJECT);
+        pos++;
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() {
+        expect(JsonToken.END_OBJECT);
+        pos++;
+        depth--;
+    }
+
+    public void beginArray() {
+        expect(JsonToken.BEGIN_ARRAY);
+        pos++;
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() {
+        expect(JsonToken.END_ARRAY);
+        pos++;
+        depth--;
+    }
+
+    /**
+     * @return Whether the current array or object has more elements
+     */
+    public boolean hasNext() {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    public String nextName() {
+        expect(JsonToken.NAME);
+        readString();
+        return new String(scratch, 0, scratchLength);
+    }
+
+    /**
+     * @return The next string, or the literal of the next number or boolean
+     */
+    public String nextString() {
+        JsonToken token = peek();
+        if (token == JsonToken.STRING) {
+            peeked = null;
+            readString();
+        } else if (token == JsonToken.NUMBER || token == JsonToken.BOOLEAN) {
+            peeked = null;
+            readLiteral();
+        } else {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        return new String(scratch, 0, scratchLength);
+    }
+
+    /**
+     * @return The single character of the next string
+     */
+    public char nextChar() {
+        String value = nextString();
+        if (value.length() != 1) {
+            throw new IllegalArgumentException("Expected a single character but was '" + value + "'");
+        }
+        return value.charAt(0);
+    }
+
+    public boolean nextBoolean() {
+        expect(JsonToken.BOOLEAN);
+        readLiteral();
+        if (isScratch("true")) {
+            return true;
+        } else if (isScratch("false")) {
+            return false;
+        }
+        throw syntaxError("Expected a boolean");
+    }
+
+    public void nextNull() {
+        expect(JsonToken.NULL);
+        readLiteral();
+        if (!isScratch("null")) {
+            throw syntaxError("Expected null");
+        }
+    }
+
+    public long nextLong() {
+        readNumber();
+        long value = 0;
+        int i = scratch[0] == '-' ? 1 : 0;
+        if (i == scratchLength || scratchLength - i > 18) {
+            try {
+                return Long.parseLong(new String(scratch, 0, scratchLength));
+            } catch (NumberFormatException e) {
+                return (long) parseDouble();
+            }
+        }
+        for (; i < scratchLength; i++) {
+            char c = scratch[i];
+            if (c < '0' || c > '9') {
+                // Fraction or exponent
+                return (long) parseDouble();
+            }
+            value = value * 10 + (c - '0');
+        }
+        return scratch[0] == '-' ? -value : value;
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw syntaxError("Number out of the int range: " + value);
+        }
+        return (int) value;
+    }
+
+    public short nextShort() {
+        long value = nextLong();
+        if (value != (short) value) {
+            throw syntaxError("Number out of the short range: " + value);
+        }
+        return (short) value;
+    }
+
+    public byte nextByte() {
+        long value = nextLong();
+        if (value != (byte) value) {
+            throw syntaxError("Number out of the byte range: " + value);
+        }
+        return (byte) value;
+    }
+
+    public double nextDouble() {
+        readNumber();
+        return parseDouble();
+    }
+
+    /**
+     * Skip the next value, including all the nested values of arrays and objects
+     */
+    public void skipValue() {
+        int count = 0;
+        do {
+            JsonToken token = peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    count--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    count--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of the document");
+                default:
+                    peeked = null;
+                    readLiteral();
+            }
+        } while (count > 0);
+    }
+
+    private void expect(JsonToken expected) {
+        JsonToken token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth > MAX_DEPTH) {
+            throw syntaxError("More than " + MAX_DEPTH + " nested arrays and objects");
+        }
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    private void readNumber() {
+        JsonToken token = peek();
+        if (token == JsonToken.STRING) {
+            // Quoted numbers are accepted, i.e. for values that don't fit in a double
+            peeked = null;
+            readString();
+        } else if (token == JsonToken.NUMBER) {
+            peeked = null;
+            readLiteral();
+        } else {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        if (scratchLength == 0) {
+            throw syntaxError("Expected a number");
+        }
+    }
+
+    private double parseDouble() {
+        try {
+            return Double.parseDouble(new String(scratch, 0, scratchLength));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number '" + new String(scratch, 0, scratchLength) + "'");
+        }
+    }
+
+    /**
+     * Read an unquoted literal (number, boolean or null) into the scratch buffer
+     */
+    private void readLiteral() {
+        scratchLength = 0;
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                break;
+            }
+            appendScratch(c);
+            pos++;
+        }
+    }
+
+    /**
+     * Read a quoted string into the scratch buffer, resolving the escape sequences
+     */
+    private void readString() {
+        scratchLength = 0;
+        pos++;
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                throw syntaxError("Unterminated string");
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                appendScratch(readEscape());
+            } else {
+                appendScratch(c);
+            }
+        }
+    }
+
+    private char readEscape() {
+        if (pos == limit && !fill(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char c = buffer[pos++];
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                if (limit - pos < 4 && !fill(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("Invalid escape sequence '\\" + c + "'");
+        }
+    }
+
+    private void appendScratch(char c) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratchLength * 2);
+        }
+        scratch[scratchLength++] = c;
+    }
+
+    private boolean isScratch(String literal) {
+        if (scratchLength != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < scratchLength; i++) {
+            if (scratch[i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char nextNonWhitespace() {
+        int c = nextNonWhitespaceOrEnd();
+        if (c < 0) {
+            throw syntaxError("Unexpected end of the document");
+        }
+        return (char) c;
+    }
+
+    private int nextNonWhitespaceOrEnd() {
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * Make sure there are at least the given number of characters available in the buffer
+     *
+     * @return Whether the characters are available, false if the input ended before
+     */
+    private boolean fill(int minimum) {
+        if (Objects.isNull(in)) {
+            return limit - pos >= minimum;
+        }
+        // Keep the unread characters at the start of the buffer
+        consumed += pos;
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        try {
+            while (limit < minimum) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    return false;
+                }
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private IllegalArgumentException syntaxError(String message) {
+        return new IllegalArgumentException(message + " at offset " + (consumed + pos));
+    }
+}
@@ -0,0 +1,275 @@
+package encora.winterframework.util.json;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Serializes a graph of objects into a {@link JsonWriter}, following the cached {@link ClassMetadata} of each class
+ * <p>
+ * An instance is meant for a single call, it keeps track of the objects being written to detect cycles and graphs
+ * nested too deep.
+ */
+public final class JsonSerializer {
+
+    private final JsonWriter writer;
+
+    private final int maxDepth;
+
+    // Objects being written, from the root to the current one
+    private Object[] path;
+
+    private int depth;
+
+    /**
+     * @param writer   The writer receiving the JSON
+     * @param maxDepth Maximum number of objects, collections, maps and arrays nested into each other
+     */
+    public JsonSerializer(JsonWriter writer, int maxDepth) {
+        this.writer = writer;
+        this.maxDepth = maxDepth;
+        this.path = new Object[Math.min(maxDepth, 16)];
+    }
+
+    public void write(Object value) throws IllegalAccessException {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+        ClassMetadata metadata = ClassMetadata.of(value.getClass());
+        switch (metadata.getKind()) {
+            case BOOLEAN:
+                writer.writeBoolean((Boolean) value);
+                break;
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                writer.writeLong(((Number) value).longValue());
+                break;
+            case FLOAT:
+                writer.writeFloat((Float) value);
+                break;
+            case DOUBLE:
+                writer.writeDouble((Double) value);
+                break;
+            case CHAR:
+            case STRING:
+            case DATE:
+            case TEMPORAL:
+                writer.writeString(value.toString());
+                break;
+            case BIG_NUMBER:
+                writer.writeAscii(value.toString());
+                break;
+            case ENUM:
+                writer.writeString(((Enum<?>) value).name());
+                break;
+            case OPTIONAL:
+                write(((Optional<?>) value).orElse(null));
+                break;
+            case COLLECTION:
+                writeCollection((Collection<?>) value);
+                break;
+            case MAP:
+                writeMap((Map<?, ?>) value);
+                break;
+            case ARRAY:
+                writeArray(value);
+                break;
+            default:
+                writeObject(value, metadata);
+        }
+    }
+
+    private void writeCollection(Collection<?> collection) throws IllegalAccessException {
+        enter(collection);
+        writer.writeByte((byte) '[');
+        boolean first = true;
+        for (Object element : collection) {
+            if (!first) {
+                writer.writeByte((byte) ',');
+            }
+            first = false;
+            write(element);
+        }
+        writer.writeByte((byte) ']');
+        depth--;
+    }
+
+    /**
+     * Keys are written as strings, since JSON names can't be anything else
+     */
+    private void writeMap(Map<?, ?> map) throws IllegalAccessException {
+        enter(map);
+        writer.writeByte((byte) '{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                writer.writeByte((byte) ',');
+            }
+            first = false;
+            Object key = entry.getKey();
+            writer.writeString(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key));
+            writer.writeByte((byte) ':');
+            write(entry.getValue());
+        }
+        writer.writeByte((byte) '}');
+        depth--;
+    }
+
+    /**
+     * Arrays of primitives are written with a loop of their own, so the elements are never boxed
+     */
+    private void writeArray(Object array) throws IllegalAccessException {
+        writer.writeByte((byte) '[');
+        if (array instanceof Object[]) {
+            // Only arrays of objects can contain themselves
+            enter(array);
+            Object[] elements = (Object[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                write(elements[i]);
+            }
+            depth--;
+        } else if (array instanceof int[]) {
+            int[] elements = (int[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeLong(elements[i]);
+            }
+        } else if (array instanceof long[]) {
+            long[] elements = (long[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeLong(elements[i]);
+            }
+        } else if (array instanceof double[]) {
+            double[] elements = (double[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeDouble(elements[i]);
+            }
+        } else if (array instanceof float[]) {
+            float[] elements = (float[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeFloat(elements[i]);
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] elements = (boolean[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeBoolean(elements[i]);
+            }
+        } else if (array instanceof byte[]) {
+            byte[] elements = (byte[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeLong(elements[i]);
+            }
+        } else if (array instanceof short[]) {
+            short[] elements = (short[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeLong(elements[i]);
+            }
+        } else {
+            char[] elements = (char[]) array;
+            for (int i = 0; i < elements.length; i++) {
+                if (i > 0) {
+                    writer.writeByte((byte) ',');
+                }
+                writer.writeChar(elements[i]);
+            }
+        }
+        writer.writeByte((byte) ']');
+    }
+
+    private void writeObject(Object o, ClassMetadata metadata) throws IllegalAccessException {
+        enter(o);
+        ObjectCodec<Object> codec = metadata.getCodec();
+        if (Objects.nonNull(codec)) {
+            codec.write(o, this, writer);
+            depth--;
+            return;
+        }
+        writer.writeByte((byte) '{');
+        PropertyMetadata[] properties = metadata.properties();
+        for (int i = 0; i < properties.length; i++) {
+            PropertyMetadata property = properties[i];
+            writer.writeBytes(property.getJsonPrefix(i == 0));
+            ValueKind primitiveKind = property.getPrimitiveKind();
+            if (Objects.isNull(primitiveKind)) {
+                write(property.get(o));
+            } else {
+                writePrimitive(o, property.getField(), primitiveKind);
+            }
+        }
+        writer.writeByte((byte) '}');
+        depth--;
+    }
+
+    private void writePrimitive(Object o, Field field, ValueKind kind) throws IllegalAccessException {
+        switch (kind) {
+            case BOOLEAN:
+                writer.writeBoolean(field.getBoolean(o));
+                break;
+            case BYTE:
+            case SHORT:
+            case INT:
+                writer.writeLong(field.getInt(o));
+                break;
+            case LONG:
+                writer.writeLong(field.getLong(o));
+                break;
+            case FLOAT:
+                writer.writeFloat(field.getFloat(o));
+                break;
+            case DOUBLE:
+                writer.writeDouble(field.getDouble(o));
+                break;
+            case CHAR:
+                writer.writeChar(field.getChar(o));
+                break;
+            default:
+                throw new IllegalStateException("Not a primitive kind: " + kind);
+        }
+    }
+
+    private void enter(Object o) {
+        for (int i = 0; i < depth; i++) {
+            if (path[i] == o) {
+                throw new IllegalStateException(
+                    String.format("Cycle detected, object of '%s' references itself through its fields.", o.getClass()));
+            }
+        }
+        if (depth == maxDepth) {
+            throw new IllegalStateException(
+                String.format("Depth limit reached, found more than %d nested values at '%s'.", maxDepth, o.getClass()));
+        }
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, Math.min(depth * 2, maxDepth));
+        }
+        path[depth++] = o;
+    }
+}
@@ -0,0 +1,17 @@
+package encora.winterframework.util.json;
+
+/**
+ * Tokens returned by {@link JsonReader#peek()}
+ */
+public enum JsonToken {
+    BEGIN_OBJECT,
+    END_OBJECT,
+    BEGIN_ARRAY,
+    END_ARRAY,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+}
@@ -0,0 +1,216 @@
+package encora.winterframework.util.json;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import encora.winterframework.util.BufferedOutput;
+
+/**
+ * Writes JSON tokens encoded as UTF-8 into a byte buffer
+ * <p>
+ * When created with an {@link OutputStream} the buffer is flushed into it every time it gets full, so the memory
+ * used does not depend on the size of the document. Otherwise the buffer grows as needed and the document can
+ * be retrieved with {@link #toByteArray()} or {@link #toString()}.
+ * <p>
+ * The writer does not validate the structure of the document, the caller is in charge of the separators.
+ */
+public final class JsonWriter extends BufferedOutput {
+
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Create a writer that keeps the whole document in memory
+     *
+     * @param initialCapacity Initial size of the buffer
+     */
+    public JsonWriter(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Create a writer that flushes into a stream every time the buffer gets full
+     *
+     * @param out    The stream receiving the document
+     * @param buffer The buffer to use, can be reused once the writer is not needed anymore
+     */
+    public JsonWriter(OutputStream out, byte[] buffer) {
+        super(out, buffer);
+    }
+
+    public JsonWriter writeByte(byte b) {
+        if (count == buffer.length) {
+            makeRoom(1);
+        }
+        buffer[count++] = b;
+        return this;
+    }
+
+    public JsonWriter writeBytes(byte[] bytes) {
+        return writeBytes(bytes, 0, bytes.length);
+    }
+
+    public JsonWriter writeBytes(byte[] bytes, int offset, int length) {
+        writeRaw(bytes, offset, length);
+        return this;
+    }
+
+    /**
+     * Write a string containing only ASCII characters that don't need escaping, without quotes
+     */
+    public JsonWriter writeAscii(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (count == buffer.length) {
+                makeRoom(1);
+            }
+            buffer[count++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    public JsonWriter writeNull() {
+        return writeBytes(NULL);
+    }
+
+    public JsonWriter writeBoolean(boolean value) {
+        return writeBytes(value ? TRUE : FALSE);
+    }
+
+    public JsonWriter writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            return writeBytes(MIN_LONG);
+        }
+        if (buffer.length - count < 20) {
+            makeRoom(20);
+        }
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int pos = count + digits;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        count += digits;
+        return this;
+    }
+
+    public JsonWriter writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // Not representable in JSON
+            return writeNull();
+        }
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            return writeLong((long) value).writeByte((byte) '.').writeByte((byte) '0');
+        }
+        return writeAscii(Double.toString(value));
+    }
+
+    public JsonWriter writeFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return writeNull();
+        }
+        return writeAscii(Float.toString(value));
+    }
+
+    /**
+     * Write a single character as a quoted and escaped string
+     */
+    public JsonWriter writeChar(char c) {
+        if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+            if (buffer.length - count < 3) {
+                makeRoom(3);
+            }
+            buffer[count++] = '"';
+            buffer[count++] = (byte) c;
+            buffer[count++] = '"';
+            return this;
+        }
+        return writeString(String.valueOf(c));
+    }
+
+    /**
+     * Write a quoted and escaped string
+     */
+    public JsonWriter writeString(CharSequence s) {
+        writeByte((byte) '"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            // Worst case is a surrogate pair or an escaped control character
+            if (buffer.length - count < 6) {
+                makeRoom(6);
+            }
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buffer[count++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, not valid UTF-8
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return writeByte((byte) '"');
+    }
+
+    private void writeEscaped(char c) {
+        buffer[count++] = '\\';
+        switch (c) {
+            case '"':
+                buffer[count++] = '"';
+                break;
+            case '\\':
+                buffer[count++] = '\\';
+                break;
+            case '\n':
+                buffer[count++] = 'n';
+                break;
+            case '\r':
+                buffer[count++] = 'r';
+                break;
+            case '\t':
+                buffer[count++] = 't';
+                break;
+            case '\b':
+                buffer[count++] = 'b';
+                break;
+            case '\f':
+                buffer[count++] = 'f';
+                break;
+            default:
+                buffer[count++] = 'u';
+                buffer[count++] = '0';
+                buffer[count++] = '0';
+                buffer[count++] = HEX[c >> 4];
+                buffer[count++] = HEX[c & 0xF];
+        }
+    }
+}
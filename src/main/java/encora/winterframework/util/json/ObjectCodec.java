@@ -0,0 +1,58 @@
+package encora.winterframework.util.json;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes the objects of a class without reflection
+ * Implementations are generated for the classes annotated with {@link encora.winterframework.annotation.JsonCodec},
+ * in the same package and named after the class with the {@value #SUFFIX} suffix.
+ *
+ * @param <T> The class of the objects
+ */
+public interface ObjectCodec<T> {
+
+    String SUFFIX = "_JsonCodec";
+
+    /**
+     * Write the fields of the object between braces, nested values are written with the serializer
+     */
+    void write(T value, JsonSerializer serializer, JsonWriter writer) throws IllegalAccessException;
+
+    /**
+     * Read an object from the braces to the closing one, nested values are read with the deserializer
+     */
+    T read(JsonDeserializer deserializer, JsonReader reader)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Used by the generated codecs to reach the fields they can't access directly
+     *
+     * @return A handle to the field of the class, even if it's private
+     */
+    static VarHandle fieldHandle(Class<?> declaringClass, String name) {
+        try {
+            Field field = declaringClass.getDeclaredField(name);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+            return lookup.findVarHandle(declaringClass, name, field.getType());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access field '" + name + "' of " + declaringClass.getName(), e);
+        }
+    }
+
+    /**
+     * Used by the generated codecs to read the nested values with their type arguments
+     *
+     * @return The declared type of the field
+     */
+    static Type fieldType(Class<?> declaringClass, String name) {
+        try {
+            return declaringClass.getDeclaredField(name).getGenericType();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Cannot find field '" + name + "' of " + declaringClass.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package encora.winterframework.util.json;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A serializable field of a class, with its accessor ready to use
+ */
+public final class PropertyMetadata {
+
+    private final String name;
+
+    private final Field field;
+
+    private final Class<?> type;
+
+    private final Type genericType;
+
+    private final ValueKind primitiveKind;
+
+    private final byte[] jsonFirstPrefix;
+
+    private final byte[] jsonPrefix;
+
+    PropertyMetadata(Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException e) {
+            // InaccessibleObjectException, i.e. the internals of JDK classes
+            throw new IllegalArgumentException("Cannot access field '" + field.getName() + "' of " + field.getDeclaringClass(), e);
+        }
+        this.name = field.getName();
+        this.field = field;
+        this.type = field.getType();
+        this.genericType = field.getGenericType();
+        this.primitiveKind = type.isPrimitive() ? ValueKind.of(type) : null;
+
+        JsonWriter nameWriter = new JsonWriter(name.length() + 4);
+        nameWriter.writeString(name).writeByte((byte) ':');
+        this.jsonFirstPrefix = nameWriter.toByteArray();
+        this.jsonPrefix = new byte[jsonFirstPrefix.length + 1];
+        this.jsonPrefix[0] = ',';
+        System.arraycopy(jsonFirstPrefix, 0, jsonPrefix, 1, jsonFirstPrefix.length);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return The declared type of the field, including the type arguments of collections and maps
+     */
+    public Type getGenericType() {
+        return genericType;
+    }
+
+    /**
+     * @return The kind of the field when it's primitive, null for references
+     */
+    public ValueKind getPrimitiveKind() {
+        return primitiveKind;
+    }
+
+    /**
+     * @param first Whether this is the first property written in the object
+     * @return The UTF-8 bytes of the quoted name followed by ':', and preceded by ',' when it's not the first one
+     */
+    public byte[] getJsonPrefix(boolean first) {
+        return first ? jsonFirstPrefix : jsonPrefix;
+    }
+
+    public Object get(Object instance) throws IllegalAccessException {
+        return field.get(instance);
+    }
+
+    public void set(Object instance, Object value) throws IllegalAccessException {
+        field.set(instance, value);
+    }
+
+    @Override
+    public String toString() {
+        return new String(jsonFirstPrefix, StandardCharsets.UTF_8) + type.getName();
+    }
+}
@@ -0,0 +1,82 @@
+package encora.winterframework.util.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Kinds of values known by the codecs, resolved once per type so the serialization doesn't need to check types again
+ */
+public enum ValueKind {
+
+    BOOLEAN,
+    BYTE,
+    SHORT,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    CHAR,
+    STRING,
+    DATE,
+    // BigDecimal and BigInteger, written as numbers without losing precision
+    BIG_NUMBER,
+    ENUM,
+    // Types of java.time, written with their ISO-8601 representation
+    TEMPORAL,
+    OPTIONAL,
+    COLLECTION,
+    MAP,
+    ARRAY,
+    // Object itself, read as the natural Java value of the JSON
+    ANY,
+    OBJECT;
+
+    /**
+     * @param type The type to classify, either primitive or not
+     * @return The kind of the values of the type
+     */
+    public static ValueKind of(Class<?> type) {
+        if (type == Boolean.TYPE || type == Boolean.class) {
+            return BOOLEAN;
+        } else if (type == Byte.TYPE || type == Byte.class) {
+            return BYTE;
+        } else if (type == Short.TYPE || type == Short.class) {
+            return SHORT;
+        } else if (type == Integer.TYPE || type == Integer.class) {
+            return INT;
+        } else if (type == Long.TYPE || type == Long.class) {
+            return LONG;
+        } else if (type == Float.TYPE || type == Float.class) {
+            return FLOAT;
+        } else if (type == Double.TYPE || type == Double.class) {
+            return DOUBLE;
+        } else if (type == Character.TYPE || type == Character.class) {
+            return CHAR;
+        } else if (type == String.class) {
+            return STRING;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == BigDecimal.class || type == BigInteger.class) {
+            return BIG_NUMBER;
+        } else if (Enum.class.isAssignableFrom(type)) {
+            return ENUM;
+        } else if (type.getPackageName().equals("java.time")) {
+            return TEMPORAL;
+        } else if (type == Optional.class) {
+            return OPTIONAL;
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return COLLECTION;
+        } else if (Map.class.isAssignableFrom(type)) {
+            return MAP;
+        } else if (type.isArray()) {
+            return ARRAY;
+        } else if (type == Object.class) {
+            return ANY;
+        }
+        return OBJECT;
+    }
+}
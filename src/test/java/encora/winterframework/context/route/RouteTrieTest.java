@@ -0,0 +1,143 @@
+package encora.winterframework.context.route;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import encora.winterframework.annotation.PathParam;
+import encora.winterframework.annotation.QueryParam;
+import encora.winterframework.annotation.RequestHeader;
+
+class RouteTrieTest {
+
+    private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
+
+    public static class OrderController {
+
+        public void all() {}
+
+        public void byId() {}
+
+        public void latest() {}
+
+        public void item() {}
+
+        public void files() {}
+
+        public void create() {}
+
+        public void search(@PathParam("id") long id, @QueryParam("limit") int limit, @QueryParam("sort") Optional<String> sort,
+                           @RequestHeader("X-Tenant") String tenant) {}
+    }
+
+    private static final OrderController CONTROLLER = new OrderController();
+
+    public static void main(String[] args) throws NoSuchMethodException {
+        RouteTrie trie = new RouteTrie();
+        trie.add("GET", "/orders", handler("all"), CONTROLLER);
+        trie.add("GET", "/orders/{id}", handler("byId"), CONTROLLER);
+        trie.add("GET", "/orders/latest", handler("latest"), CONTROLLER);
+        trie.add("GET", "/orders/{id}/items/{itemId}", handler("item"), CONTROLLER);
+        trie.add("GET", "/files/{*path}", handler("files"), CONTROLLER);
+        trie.add("POST", "/orders", handler("create"), CONTROLLER);
+        trie.add("GET", "/orders/{id}/search", handler("search"), CONTROLLER);
+        trie.compile();
+
+        check(trie.find("GET", "/orders"), "all");
+        check(trie.find("GET", "/orders/"), "all");
+        check(trie.find("GET", "/orders/latest"), "latest");
+        RouteMatch byId = check(trie.find("GET", "/orders/42"), "byId");
+        expect("42", byId.getVariable("id"));
+        RouteMatch item = check(trie.find("GET", "/orders/latest/items/7"), "item");
+        expect("latest", item.getVariable("id"));
+        expect("7", item.getVariable("itemId"));
+        RouteMatch files = check(trie.find("GET", "/files/a/b/c.txt"), "files");
+        expect("a/b/c.txt", files.getVariable("path"));
+        check(trie.find("POST", "/orders"), "create");
+        expect(null, trie.find("DELETE", "/orders"));
+        expect(null, trie.find("GET", "/orders/42/items"));
+        expect("[GET, POST]", trie.findAllowedMethods("/orders").toString());
+        log.info("Routes matched as expected: " + trie.getRoutes());
+
+        RouteMatch search = check(trie.find("GET", "/orders/42/search"), "search");
+        Object[] arguments = bind(search, Map.of("limit", "10"), Map.of("X-Tenant", "acme"));
+        expect("[42, 10, Optional.empty, acme]", Arrays.toString(arguments));
+        arguments = bind(search, Map.of("limit", "5", "sort", "date"), Map.of());
+        expect("[42, 5, Optional[date], null]", Arrays.toString(arguments));
+        expectBadRequest(search, Map.of(), "Missing query parameter 'limit'");
+        expectBadRequest(search, Map.of("limit", "ten"), "Invalid query parameter 'limit', 'ten' is not a valid int");
+        try {
+            new RouteTrie().add("GET", "/orders/{orderId}/search", handler("search"), CONTROLLER);
+            throw new AssertionError("Expected the unknown path variable to be rejected");
+        } catch (IllegalArgumentException e) {
+            log.info("Unknown path variable rejected: " + e.getMessage());
+        }
+        log.info("Arguments bound as expected");
+    }
+
+    private static Object[] bind(RouteMatch match, Map<String, String> query, Map<String, String> headers) {
+        try {
+            return match.getRoute().resolveArguments(new RequestValues() {
+
+                @Override
+                public String getPathVariable(int index) {
+                    return match.getVariable(index);
+                }
+
+                @Override
+                public String getQueryParameter(String name) {
+                    return query.get(name);
+                }
+
+                @Override
+                public String getHeader(String name) {
+                    return headers.get(name);
+                }
+
+                @Override
+                public Object readBody(Type type) {
+                    return null;
+                }
+            });
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void expectBadRequest(RouteMatch match, Map<String, String> query, String message) {
+        try {
+            bind(match, query, Map.of());
+            throw new AssertionError("Expected '" + message + "'");
+        } catch (IllegalArgumentException e) {
+            expect(message, e.getMessage());
+        }
+    }
+
+    private static Method handler(String name) throws NoSuchMethodException {
+        for (Method method : OrderController.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static RouteMatch check(RouteMatch match, String handlerName) {
+        if (Objects.isNull(match) || !match.getRoute().getHandlerMethod().getName().equals(handlerName)) {
+            throw new AssertionError("Expected handler '" + handlerName + "' but got " + (match == null ? null : match.getRoute()));
+        }
+        return match;
+    }
+
+    private static void expect(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError("Expected '" + expected + "' but got '" + actual + "'");
+        }
+    }
+}
@@ -2,10 +2,27 @@ package encora.winterframework.util;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.logging.Logger;
 
+import encora.winterframework.annotation.JsonCodec;
+import encora.winterframework.util.cbor.CborDeserializer;
+import encora.winterframework.util.cbor.CborReader;
+import encora.winterframework.util.cbor.CborSerializer;
+import encora.winterframework.util.cbor.CborWriter;
+
 class JSONParserTest {
 
     private static final Logger log = Logger.getLogger(MethodHandles.lookup().lookupClass().getName());
@@ -102,6 +119,99 @@ class JSONParserTest {
         }
     }
 
+    public enum Level {
+        JUNIOR, SENIOR {
+            @Override public String toString() {
+                return "Senior";
+            }
+        }
+    }
+
+    @JsonCodec
+    public static class Team {
+
+        private List<Person> members;
+
+        private Map<String, List<Integer>> scores;
+
+        private Map<Level, Integer> levels;
+
+        private Set<String> tags;
+
+        private Optional<String> motto;
+
+        private Optional<Job> openJob;
+
+        // Not private, the generated codec uses them directly
+        Level level;
+
+        LocalDate founded;
+
+        private Instant updated;
+
+        private Duration standup;
+
+        private BigDecimal budget;
+
+        double[] ratings;
+
+        private long[][] ids;
+
+        private char[] initials;
+
+        private List<? extends Number> numbers;
+
+        private Object extra;
+
+        @Override public String toString() {
+            return "Team{" +
+                "members=" + members +
+                ", scores=" + scores +
+                ", levels=" + levels +
+                ", tags=" + tags +
+                ", motto=" + motto +
+                ", openJob=" + openJob +
+                ", level=" + level +
+                ", founded=" + founded +
+                ", updated=" + updated +
+                ", standup=" + standup +
+                ", budget=" + budget +
+                ", ratings=" + Arrays.toString(ratings) +
+                ", ids=" + Arrays.deepToString(ids) +
+                ", initials=" + Arrays.toString(initials) +
+                ", numbers=" + numbers +
+                ", extra=" + extra +
+                '}';
+        }
+    }
+
+    // Same fields, but serialized with reflection since the annotation isn't inherited
+    public static class ReflectiveTeam extends Team {
+    }
+
+    private static Team fill(Team team, Person member) {
+        team.members = List.of(member);
+        team.scores = new LinkedHashMap<>();
+        team.scores.put("first", List.of(1, 2, 3));
+        team.scores.put("empty", List.of());
+        team.levels = new EnumMap<>(Level.class);
+        team.levels.put(Level.SENIOR, 2);
+        team.tags = new TreeSet<>(Set.of("b", "a"));
+        team.motto = Optional.of("Keep it \"simple\"");
+        team.openJob = Optional.empty();
+        team.level = Level.SENIOR;
+        team.founded = LocalDate.of(2020, 2, 29);
+        team.updated = Instant.ofEpochSecond(1_700_000_000L, 123);
+        team.standup = Duration.ofMinutes(15);
+        team.budget = new BigDecimal("12345678901234567890.0123456789");
+        team.ratings = new double[] { 4.5, 3, -0.25 };
+        team.ids = new long[][] { { Long.MAX_VALUE, Long.MIN_VALUE }, {} };
+        team.initials = new char[] { 'R', '"', '\u00f1' };
+        team.numbers = List.of(1, 2.5);
+        team.extra = Map.of("nested", List.of(1, "two", true));
+        return team;
+    }
+
     public static void main(String[] args)
         throws IllegalAccessException, NoSuchFieldException, InvocationTargetException, NoSuchMethodException, InstantiationException {
 
@@ -130,5 +240,29 @@ class JSONParserTest {
         personJSON = JSONParser.toJSON(person);
         log.info("\n//To JSON again");
         log.info(personJSON);
+
+        Team team = fill(new Team(), newPerson);
+        log.info("\n//Collections, maps and friends to JSON");
+        String teamJSON = JSONParser.toJSON(team);
+        log.info(teamJSON);
+
+        log.info("\n//Now to team");
+        Team newTeam = JSONParser.toObject(teamJSON, Team.class);
+        log.info(newTeam.toString());
+        if (!teamJSON.equals(JSONParser.toJSON(newTeam))) {
+            throw new IllegalStateException("The team changed after reading it back");
+        }
+        if (!teamJSON.equals(JSONParser.toJSON(fill(new ReflectiveTeam(), newPerson)))) {
+            throw new IllegalStateException("The generated codec and the reflective one disagree");
+        }
+
+        log.info("\n//Team to CBOR and back");
+        CborWriter cbor = new CborWriter(256);
+        new CborSerializer(cbor, 10).write(team);
+        log.info(cbor.size() + " bytes of CBOR, " + teamJSON.length() + " of JSON");
+        Object cborTeam = new CborDeserializer(new CborReader(cbor.toByteArray())).read(Team.class);
+        if (!teamJSON.equals(JSONParser.toJSON(cborTeam))) {
+            throw new IllegalStateException("The team changed after a CBOR round trip");
+        }
     }
 }
\ No newline at end of file